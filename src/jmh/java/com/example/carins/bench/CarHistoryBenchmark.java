@@ -0,0 +1,31 @@
+package com.example.carins.bench;
+
+import com.example.carins.web.CarController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Full streamed history of a random car, serialized into an in-memory response
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarHistoryBenchmark {
+
+    @Benchmark
+    public int getCarHistory(FleetState fleet) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fleet.bean(CarController.class).getCarHistory(fleet.randomCarId(), null, null, MediaType.APPLICATION_JSON_VALUE, response);
+        return response.getContentAsByteArray().length;
+    }
+}
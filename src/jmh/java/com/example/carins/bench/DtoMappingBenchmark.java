@@ -0,0 +1,63 @@
+package com.example.carins.bench;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.model.Owner;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Entity to DTO mapping alone, no database: a list of detached policies mapped per invocation
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+
+    @Param({"100"})
+    public int policies;
+
+    private List<InsurancePolicy> entities;
+
+    @Setup
+    public void build() throws ReflectiveOperationException {
+        Field carId = Car.class.getDeclaredField("id");
+        Field policyId = InsurancePolicy.class.getDeclaredField("id");
+        carId.setAccessible(true);
+        policyId.setAccessible(true);
+        Car car = new Car("BENCHVIN00000001", "Make", "Model", 2020, new Owner("Owner", "owner@example.com"));
+        carId.set(car, 1L);
+        entities = new ArrayList<>(policies);
+        for (int i = 0; i < policies; i++) {
+            LocalDate start = LocalDate.of(2018, 1, 1).plusYears(i);
+            InsurancePolicy policy = new InsurancePolicy(car, "Provider", start, start.plusYears(1).minusDays(1));
+            policyId.set(policy, (long) i + 1);
+            entities.add(policy);
+        }
+    }
+
+    @Benchmark
+    public void insurancePolicyDtoFromEntity(Blackhole blackhole) {
+        for (InsurancePolicy policy : entities) {
+            blackhole.consume(InsurancePolicyDto.fromEntity(policy));
+        }
+    }
+}
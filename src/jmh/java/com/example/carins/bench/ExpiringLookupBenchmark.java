@@ -0,0 +1,59 @@
+package com.example.carins.bench;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.PolicySpan;
+import com.example.carins.service.PolicyExpiryWheel;
+import com.example.carins.web.dto.ExpiringPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Policies ending in the next `withinDays` days, from the expiry wheel and from the end-date query it replaces.
+// The generated fleet's policy dates are shifted so its middle year is around today, then the wheel is rebuilt.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpiringLookupBenchmark {
+
+    @Param({"30"})
+    public int withinDays;
+
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void shiftPolicies(FleetState fleet) {
+        today = LocalDate.now();
+        long shift = ChronoUnit.DAYS.between(fleet.firstPolicyStart.plusYears(2), today);
+        fleet.bean(JdbcTemplate.class).update("update insurancepolicy set start_date = dateadd(day, ?, start_date), " +
+                                              "end_date = dateadd(day, ?, end_date)", shift, shift);
+        fleet.bean(PolicyExpiryWheel.class).rebuild();
+    }
+
+    @Benchmark
+    public List<ExpiringPolicy> wheel(FleetState fleet) {
+        return fleet.bean(PolicyExpiryWheel.class).expiringWithin(today, withinDays);
+    }
+
+    @Benchmark
+    public List<PolicySpan> query(FleetState fleet) {
+        return fleet.bean(InsurancePolicyRepository.class).findEndingBetween(today, today.plusDays(withinDays));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.carins.bench;
+
+import com.example.carins.export.ExportFormat;
+import com.example.carins.repo.ExportRepository;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Full policy extracts into a byte-counting sink: `rows` and `bytes` are reported per second next to whole
+// extracts per second. A 10M-row extract is -p cars=2500000 (4 policies per car).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+
+    @Param({"CSV", "COLUMNAR"})
+    public ExportFormat format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long rows;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+            bytes = 0;
+        }
+    }
+
+    @Benchmark
+    public long exportPolicies(FleetState fleet, Counters counters) throws IOException {
+        CountingStream counting = new CountingStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(counting, 64 * 1024) : counting) {
+            counters.rows += fleet.bean(ExportRepository.class).exportPolicies(null, null, null, format.open(out));
+        }
+        counters.bytes += counting.count;
+        return counting.count;
+    }
+
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.carins.bench;
+
+import com.example.carins.CarInsuranceApplication;
+import com.example.carins.seed.FleetLoadResult;
+import com.example.carins.seed.FleetLoader;
+import com.example.carins.seed.FleetSpec;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// The application on its own H2 database, seeded through FleetLoader with a synthetic fleet of `cars` cars
+// averaging policiesPerCar policies and claimsPerCar claims each. The database lives in memory unless
+// -p db=file puts it under target/bench-h2, which fleets of millions of policies need to fit the heap.
+@State(Scope.Benchmark)
+public class FleetState {
+
+    @Param({"10000"})
+    public int cars;
+
+    @Param({"4"})
+    public int policiesPerCar;
+
+    @Param({"1.5"})
+    public double claimsPerCar;
+
+    @Param({"mem"})
+    public String db;
+
+    public ConfigurableApplicationContext context;
+    public long firstCarId;
+    // every car's first policy starts within a year of this date
+    public LocalDate firstPolicyStart;
+    private Path dbFile;
+
+    @Setup(Level.Trial)
+    public void start() {
+        String name = "bench-" + UUID.randomUUID();
+        String url = switch (db) {
+            case "mem" -> "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+            case "file" -> {
+                dbFile = Path.of("target", "bench-h2", name + ".mv.db");
+                // an extract's cursor outlives the default 45 s chunk retention on a fleet this size
+                yield "jdbc:h2:file:./target/bench-h2/" + name + ";RETENTION_TIME=600000";
+            }
+            default -> throw new IllegalArgumentException("db must be mem or file");
+        };
+        context = new SpringApplicationBuilder(CarInsuranceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--logging.level.root=WARN",
+                        "--carins.expiry.cron=-",
+                        "--carins.expiry.run-skew=PT0S");
+        FleetSpec spec = FleetSpec.of(cars).withPolicies(policiesPerCar).withClaims(claimsPerCar).replacingExisting();
+        FleetLoadResult result = bean(FleetLoader.class).load(spec);
+        firstCarId = result.firstCarId();
+        firstPolicyStart = spec.firstPolicyStart();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        if (dbFile != null) Files.deleteIfExists(dbFile);
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public long randomCarId() {
+        return firstCarId + ThreadLocalRandom.current().nextInt(cars);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.carins.bench;
+
+import com.example.carins.service.CarService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// CarService.isInsuranceValid for a random car and a random date across the seeded policy span
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsuranceValidityBenchmark {
+
+    @Benchmark
+    public boolean isInsuranceValid(FleetState fleet) {
+        LocalDate date = fleet.firstPolicyStart.plusDays(ThreadLocalRandom.current().nextInt(365 * (fleet.policiesPerCar + 1)));
+        return fleet.bean(CarService.class).isInsuranceValid(fleet.randomCarId(), date);
+    }
+}
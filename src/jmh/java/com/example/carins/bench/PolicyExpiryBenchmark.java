@@ -0,0 +1,57 @@
+package com.example.carins.bench;
+
+import com.example.carins.service.ExpirySweepResult;
+import com.example.carins.service.PolicyExpiryLogger;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// One whole expiry sweep per invocation; every policy that ended before `today` is due again each time.
+// Notifications go to the default log sink, which FleetState keeps quiet at WARN.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicyExpiryBenchmark {
+
+    private LocalDate today;
+
+    // rates of the sweep itself, as measured by PolicyExpiryLogger
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Rates {
+        public double notificationsPerSecond;
+        public double policiesPerSecond;
+    }
+
+    @Setup(Level.Iteration)
+    public void reset(FleetState fleet) {
+        today = fleet.firstPolicyStart.plusYears(2);
+        JdbcTemplate jdbc = fleet.bean(JdbcTemplate.class);
+        jdbc.update("update insurancepolicy set expiry_notified = false");
+        jdbc.update("delete from expiry_partition_lease");
+    }
+
+    @Benchmark
+    public ExpirySweepResult sweep(FleetState fleet, Rates rates) throws InterruptedException {
+        ExpirySweepResult result = fleet.bean(PolicyExpiryLogger.class).sweep(today);
+        rates.notificationsPerSecond = result.notificationsPerSecond();
+        rates.policiesPerSecond = result.policiesPerSecond();
+        return result;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.carins.bench;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.InsuranceStatus;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// The validity check before and after the tri-state query: loading the Car and counting matching policies,
+// against a single round trip of two EXISTS probes. Every fifth car id is past the fleet to exercise the miss path.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidityQueryBenchmark {
+
+    private static final String COUNT_QUERY = "select case when count(p) > 0 then true else false end " +
+                                              "from InsurancePolicy p where p.car.id = :carId " +
+                                              "and p.startDate <= :date and (p.endDate is null or p.endDate >= :date)";
+
+    @Benchmark
+    public boolean findCarThenCount(FleetState fleet) {
+        long carId = carId(fleet);
+        LocalDate date = date(fleet);
+        if (fleet.bean(CarRepository.class).findById(carId).isEmpty()) return false;
+        return fleet.bean(EntityManager.class).createQuery(COUNT_QUERY, Boolean.class)
+                .setParameter("carId", carId)
+                .setParameter("date", date)
+                .getSingleResult();
+    }
+
+    @Benchmark
+    public InsuranceStatus triStateExists(FleetState fleet) {
+        return fleet.bean(InsurancePolicyRepository.class).findInsuranceStatus(carId(fleet), date(fleet));
+    }
+
+    private static long carId(FleetState fleet) {
+        long carId = fleet.randomCarId();
+        return ThreadLocalRandom.current().nextInt(5) == 0 ? carId + fleet.cars : carId;
+    }
+
+    private static LocalDate date(FleetState fleet) {
+        return fleet.firstPolicyStart.plusDays(ThreadLocalRandom.current().nextInt(365 * (fleet.policiesPerCar + 1)));
+    }
+}
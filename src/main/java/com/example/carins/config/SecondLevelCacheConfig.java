@@ -0,0 +1,62 @@
+package com.example.carins.config;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.Owner;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+// Caffeine-backed JCache regions for Hibernate's second-level and query caches, sized and expired from properties
+@Configuration
+public class SecondLevelCacheConfig {
+
+    // query cache region of CarRepository.findByVin
+    public static final String CAR_BY_VIN_REGION = "car-by-vin";
+
+    @Bean
+    public CacheManager hibernateCacheManager(@Value("${carins.cache.entity.max-size:10000}") long entityMaxSize,
+                                              @Value("${carins.cache.entity.ttl:PT10M}") Duration entityTtl,
+                                              @Value("${carins.cache.query.max-size:10000}") long queryMaxSize,
+                                              @Value("${carins.cache.query.ttl:PT5M}") Duration queryTtl) {
+        // a manager per application context, so contexts sharing a JVM (tests) never see each other's regions
+        CacheManager manager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("carins-" + UUID.randomUUID()), getClass().getClassLoader());
+        manager.createCache(Car.class.getName(), region(entityMaxSize, entityTtl));
+        manager.createCache(Owner.class.getName(), region(entityMaxSize, entityTtl));
+        manager.createCache(CAR_BY_VIN_REGION, region(queryMaxSize, queryTtl));
+        manager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(queryMaxSize, queryTtl));
+        // table timestamps decide whether a cached query result is stale, so they must outlive every result
+        manager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, region(-1, null));
+        return manager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // every region is created above; a missing one is a mapping mistake, not something to paper over
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        if (maxSize >= 0) configuration.setMaximumSize(OptionalLong.of(maxSize));
+        if (ttl != null) configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        return configuration;
+    }
+}
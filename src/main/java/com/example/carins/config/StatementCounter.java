@@ -0,0 +1,25 @@
+package com.example.carins.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+// Counts the SQL statements Hibernate prepares on the current thread; registered with Hibernate in MetricsConfig
+@Component
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public int count() {
+        return COUNT.get()[0];
+    }
+}
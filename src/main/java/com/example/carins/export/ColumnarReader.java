@@ -0,0 +1,110 @@
+package com.example.carins.export;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Reads a ColumnarRowSink extract block by block; rows come back as Long, String, LocalDate, BigDecimal
+// or Boolean values (null where the column was null)
+public class ColumnarReader {
+
+    private final DataInputStream in;
+    private final List<ExportColumn> columns;
+
+    public ColumnarReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        byte[] magic = this.in.readNBytes(ColumnarRowSink.MAGIC.length);
+        if (!Arrays.equals(magic, ColumnarRowSink.MAGIC)) {
+            throw new IOException("Not a columnar extract");
+        }
+        int n = (int) readVarint();
+        List<ExportColumn> read = new ArrayList<>(n);
+        for (int c = 0; c < n; c++) {
+            String name = readString();
+            ExportColumn.Type type = ExportColumn.Type.values()[this.in.readUnsignedByte()];
+            read.add(new ExportColumn(name, type, this.in.readUnsignedByte()));
+        }
+        this.columns = List.copyOf(read);
+    }
+
+    public List<ExportColumn> columns() {
+        return columns;
+    }
+
+    public long forEachRow(Consumer<Object[]> action) throws IOException {
+        long total = 0;
+        for (int rows = (int) readVarint(); rows > 0; rows = (int) readVarint()) {
+            Object[][] block = new Object[columns.size()][];
+            for (int c = 0; c < columns.size(); c++) {
+                block[c] = readColumn(columns.get(c), rows);
+            }
+            for (int r = 0; r < rows; r++) {
+                Object[] row = new Object[columns.size()];
+                for (int c = 0; c < columns.size(); c++) row[c] = block[c][r];
+                action.accept(row);
+            }
+            total += rows;
+        }
+        return total;
+    }
+
+    private Object[] readColumn(ExportColumn column, int rows) throws IOException {
+        boolean[] isNull = readBitmap(rows);
+        Object[] values = new Object[rows];
+        switch (column.type()) {
+            case BOOLEAN -> {
+                boolean[] bits = readBitmap(rows);
+                for (int i = 0; i < rows; i++) if (!isNull[i]) values[i] = bits[i];
+            }
+            case STRING -> {
+                String[] dictionary = new String[(int) readVarint()];
+                for (int d = 0; d < dictionary.length; d++) dictionary[d] = readString();
+                for (int i = 0; i < rows; i++) if (!isNull[i]) values[i] = dictionary[(int) readVarint()];
+            }
+            default -> {
+                long previous = 0;
+                for (int i = 0; i < rows; i++) {
+                    if (isNull[i]) continue;
+                    long zigzag = readVarint();
+                    previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                    values[i] = switch (column.type()) {
+                        case DATE -> LocalDate.ofEpochDay(previous);
+                        case DECIMAL -> BigDecimal.valueOf(previous, column.scale());
+                        default -> previous;
+                    };
+                }
+            }
+        }
+        return values;
+    }
+
+    private boolean[] readBitmap(int rows) throws IOException {
+        boolean[] bits = new boolean[rows];
+        for (int i = 0; i < rows; i += 8) {
+            int b = in.readUnsignedByte();
+            for (int j = 0; j < 8 && i + j < rows; j++) bits[i + j] = (b & (1 << j)) != 0;
+        }
+        return bits;
+    }
+
+    private String readString() throws IOException {
+        return new String(in.readNBytes((int) readVarint()), StandardCharsets.UTF_8);
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.carins.export;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compact column-oriented binary extract, written in blocks of up to BLOCK_ROWS rows so memory stays flat.
+//
+//   file   := MAGIC columnCount:varint (name:string type:byte scale:byte)* block* 0:varint
+//   block  := rowCount:varint column*
+//   column := nullBitmap:ceil(rowCount / 8) bytes, then the non-null values:
+//             LONG, DATE (epoch day), DECIMAL (unscaled at the column scale) as zig-zag varint deltas
+//             from the previous value in the block; BOOLEAN as a bitmap; STRING as a block dictionary
+//             (size:varint string*) followed by one varint dictionary index per value
+//   string := byteLength:varint UTF-8 bytes
+//
+// Sorted ids and clustered dates shrink to a byte or two each, low-cardinality text to an index.
+// ColumnarReader reads it back.
+public class ColumnarRowSink implements RowSink {
+
+    public static final String CONTENT_TYPE = "application/vnd.carins.columnar";
+    static final byte[] MAGIC = "CINSCOL1".getBytes(StandardCharsets.US_ASCII);
+    static final int BLOCK_ROWS = 8192;
+
+    private final DataOutputStream out;
+    private List<ExportColumn> columns;
+    private long[][] numbers;
+    private String[][] strings;
+    private boolean[][] nulls;
+    private int rows;
+
+    public ColumnarRowSink(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+    }
+
+    @Override
+    public void start(List<ExportColumn> columns) throws IOException {
+        this.columns = columns;
+        int n = columns.size();
+        numbers = new long[n][];
+        strings = new String[n][];
+        nulls = new boolean[n][BLOCK_ROWS];
+        out.write(MAGIC);
+        writeVarint(n);
+        for (int c = 0; c < n; c++) {
+            ExportColumn column = columns.get(c);
+            writeString(column.name());
+            out.writeByte(column.type().ordinal());
+            out.writeByte(column.scale());
+            if (column.type() == ExportColumn.Type.STRING) strings[c] = new String[BLOCK_ROWS];
+            else numbers[c] = new long[BLOCK_ROWS];
+        }
+    }
+
+    @Override
+    public void row(ResultSet rs) throws SQLException, IOException {
+        for (int c = 0; c < columns.size(); c++) {
+            int index = c + 1;
+            ExportColumn column = columns.get(c);
+            switch (column.type()) {
+                case LONG -> {
+                    numbers[c][rows] = rs.getLong(index);
+                    nulls[c][rows] = rs.wasNull();
+                }
+                case BOOLEAN -> {
+                    numbers[c][rows] = rs.getBoolean(index) ? 1 : 0;
+                    nulls[c][rows] = rs.wasNull();
+                }
+                case DATE -> {
+                    LocalDate value = rs.getObject(index, LocalDate.class);
+                    nulls[c][rows] = value == null;
+                    numbers[c][rows] = value == null ? 0 : value.toEpochDay();
+                }
+                case DECIMAL -> {
+                    BigDecimal value = rs.getBigDecimal(index);
+                    nulls[c][rows] = value == null;
+                    numbers[c][rows] = value == null ? 0
+                            : value.setScale(column.scale(), RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+                }
+                case STRING -> {
+                    String value = rs.getString(index);
+                    nulls[c][rows] = value == null;
+                    strings[c][rows] = value;
+                }
+            }
+        }
+        if (++rows == BLOCK_ROWS) writeBlock();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (rows > 0) writeBlock();
+        writeVarint(0);
+        out.flush();
+    }
+
+    private void writeBlock() throws IOException {
+        writeVarint(rows);
+        for (int c = 0; c < columns.size(); c++) {
+            writeBitmap(nulls[c]);
+            switch (columns.get(c).type()) {
+                case BOOLEAN -> writeBooleans(numbers[c], nulls[c]);
+                case STRING -> writeStrings(strings[c], nulls[c]);
+                default -> writeDeltas(numbers[c], nulls[c]);
+            }
+        }
+        rows = 0;
+    }
+
+    private void writeBitmap(boolean[] bits) throws IOException {
+        for (int i = 0; i < rows; i += 8) {
+            int b = 0;
+            for (int j = 0; j < 8 && i + j < rows; j++) {
+                if (bits[i + j]) b |= 1 << j;
+            }
+            out.writeByte(b);
+        }
+    }
+
+    private void writeBooleans(long[] values, boolean[] isNull) throws IOException {
+        boolean[] bits = new boolean[rows];
+        for (int i = 0; i < rows; i++) bits[i] = !isNull[i] && values[i] != 0;
+        writeBitmap(bits);
+    }
+
+    private void writeDeltas(long[] values, boolean[] isNull) throws IOException {
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            if (isNull[i]) continue;
+            long delta = values[i] - previous;
+            writeVarint((delta << 1) ^ (delta >> 63));
+            previous = values[i];
+        }
+    }
+
+    private void writeStrings(String[] values, boolean[] isNull) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        int[] codes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            if (isNull[i]) continue;
+            Integer code = dictionary.putIfAbsent(values[i], dictionary.size());
+            codes[i] = code == null ? dictionary.size() - 1 : code;
+        }
+        String[] ordered = new String[dictionary.size()];
+        dictionary.forEach((value, code) -> ordered[code] = value);
+        writeVarint(ordered.length);
+        for (String value : ordered) writeString(value);
+        for (int i = 0; i < rows; i++) {
+            if (!isNull[i]) writeVarint(codes[i]);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.carins.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+// RFC 4180 CSV with a header row; dates as yyyy-MM-dd, nulls as empty fields
+public class CsvRowSink implements RowSink {
+
+    private final Writer out;
+    private List<ExportColumn> columns;
+
+    public CsvRowSink(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public void start(List<ExportColumn> columns) throws IOException {
+        this.columns = columns;
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) out.write(',');
+            writeField(out, columns.get(i).name());
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void row(ResultSet rs) throws SQLException, IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) out.write(',');
+            int index = i + 1;
+            switch (columns.get(i).type()) {
+                case LONG -> {
+                    long value = rs.getLong(index);
+                    if (!rs.wasNull()) out.write(Long.toString(value));
+                }
+                case DATE -> {
+                    LocalDate value = rs.getObject(index, LocalDate.class);
+                    if (value != null) out.write(value.toString());
+                }
+                case DECIMAL -> {
+                    BigDecimal value = rs.getBigDecimal(index);
+                    if (value != null) out.write(value.toPlainString());
+                }
+                case BOOLEAN -> {
+                    boolean value = rs.getBoolean(index);
+                    if (!rs.wasNull()) out.write(value ? "true" : "false");
+                }
+                case STRING -> {
+                    String value = rs.getString(index);
+                    if (value != null) writeField(out, value);
+                }
+            }
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    // one field, quoted only when it holds a comma, quote or line break
+    public static void writeField(Writer out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.carins.export;
+
+// One column of an extract; scale only applies to DECIMAL
+public record ExportColumn(String name, Type type, int scale) {
+
+    public enum Type { LONG, STRING, DATE, DECIMAL, BOOLEAN }
+
+    public static ExportColumn of(String name, Type type) {
+        return new ExportColumn(name, type, 0);
+    }
+
+    public static ExportColumn decimal(String name, int scale) {
+        return new ExportColumn(name, Type.DECIMAL, scale);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.carins.export;
+
+import java.io.OutputStream;
+
+public enum ExportFormat {
+    CSV("text/csv", "csv"),
+    COLUMNAR(ColumnarRowSink.CONTENT_TYPE, "cincol");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public RowSink open(OutputStream out) {
+        return this == CSV ? new CsvRowSink(out) : new ColumnarRowSink(out);
+    }
+}
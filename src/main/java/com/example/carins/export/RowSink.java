@@ -0,0 +1,16 @@
+package com.example.carins.export;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// Receives an extract straight off the JDBC cursor: row() reads the current row's columns in declared order
+public interface RowSink {
+
+    void start(List<ExportColumn> columns) throws IOException;
+
+    void row(ResultSet rs) throws SQLException, IOException;
+
+    void finish() throws IOException;
+}
@@ -1,13 +1,18 @@
 package com.example.carins.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
 @Entity
-@Table(name = "car")
+@Table(name = "car", indexes = @Index(name = "ux_car_vin", columnList = "vin", unique = true))
+@EntityListeners(CarVinListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Car {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence
     private Long id;
 
     @NotBlank @Size(min = 5, max = 32)
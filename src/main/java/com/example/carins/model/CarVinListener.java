@@ -0,0 +1,35 @@
+package com.example.carins.model;
+
+import com.example.carins.service.VinFilter;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Created by Hibernate through Spring's bean container, so it can be injected
+public class CarVinListener {
+
+    private final VinFilter vinFilter;
+
+    public CarVinListener(VinFilter vinFilter) {
+        this.vinFilter = vinFilter;
+    }
+
+    // the VIN reaches the filter only once the row is committed, so a filter rebuild scanning the table
+    // meanwhile either sees the row or gets the VIN replayed; a rolled back insert adds nothing
+    @PostPersist
+    @PostUpdate
+    void vinWritten(Car car) {
+        String vin = car.getVin();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            vinFilter.add(vin);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                vinFilter.add(vin);
+            }
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+// Running claim count and amount total per car, per owner and per claim month (scopeKey yyyyMM),
+// maintained by ClaimAggregates in the transaction that stores the claims
+@Entity
+@Table(name = "claim_aggregate")
+@IdClass(ClaimAggregate.Key.class)
+public class ClaimAggregate {
+
+    public enum Scope { CAR, OWNER, MONTH }
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private Scope scope;
+
+    @Id
+    private Long scopeKey;
+
+    @Column(nullable = false)
+    private long claimCount;
+
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal totalAmount;
+
+    public ClaimAggregate() {}
+
+    public Scope getScope() { return scope; }
+    public Long getScopeKey() { return scopeKey; }
+    public long getClaimCount() { return claimCount; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+
+    public static class Key implements Serializable {
+        private Scope scope;
+        private Long scopeKey;
+
+        public Key() {}
+        public Key(Scope scope, Long scopeKey) { this.scope = scope; this.scopeKey = scopeKey; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && scope == other.scope && Objects.equals(scopeKey, other.scopeKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scope, scopeKey);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+// Lock rows shared by every node writing claim_aggregate: a claim writer holds one stripe for its transaction, a
+// rebuild holds all of them while it opens its snapshots and while it swaps the table. Stripe 0 counts the rebuilds
+// swapped in, so a rebuild can tell that another one finished on some node while it was reading.
+@Entity
+@Table(name = "claim_aggregate_lock")
+public class ClaimAggregateLock {
+    @Id
+    private Integer stripe;
+
+    @Column(nullable = false)
+    private long rebuilds;
+
+    public ClaimAggregateLock() {}
+
+    public Integer getStripe() { return stripe; }
+    public long getRebuilds() { return rebuilds; }
+}
@@ -0,0 +1,34 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// One row per owner-id partition of the expiry sweep, the owners with mod(owner id, partitions) = partitionId;
+// a node owns a partition while leaseUntil is in the future
+@Entity
+@Table(name = "expiry_partition_lease")
+public class ExpiryPartitionLease {
+    @Id
+    private Integer partitionId;
+
+    private String ownerNode;
+
+    @Column(nullable = false)
+    private Instant leaseUntil;
+
+    private Instant completedAt;
+
+    public ExpiryPartitionLease() {}
+    public ExpiryPartitionLease(Integer partitionId, Instant leaseUntil) {
+        this.partitionId = partitionId; this.leaseUntil = leaseUntil;
+    }
+
+    public Integer getPartitionId() { return partitionId; }
+    public String getOwnerNode() { return ownerNode; }
+    public void setOwnerNode(String ownerNode) { this.ownerNode = ownerNode; }
+    public Instant getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(Instant leaseUntil) { this.leaseUntil = leaseUntil; }
+    public Instant getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Instant completedAt) { this.completedAt = completedAt; }
+}
@@ -8,10 +8,11 @@ import jakarta.validation.constraints.Positive;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+// a car's claims come back in claim date order straight from the index, without a sort
 @Entity
-@Table(name = "insuranceclaim")
+@Table(name = "insuranceclaim", indexes = @Index(name = "ix_claim_car_date", columnList = "car_id, claim_date"))
 public class InsuranceClaim {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -29,6 +30,10 @@ public class InsuranceClaim {
     @Column(nullable = false)
     private BigDecimal amount;
 
+    // set for claims accepted through the write-behind queue, makes journal replay idempotent
+    @Column(unique = true, length = 36)
+    private String trackingId;
+
     public InsuranceClaim() {}
     public InsuranceClaim(Car car, LocalDate claimDate, String description, BigDecimal amount) {
         this.car = car;
@@ -46,4 +51,6 @@ public class InsuranceClaim {
     public void setDescription(String description) { this.description = description; }
     public BigDecimal getAmount() { return amount; }
     public void setAmount(BigDecimal amount) { this.amount = amount; }
+    public String getTrackingId() { return trackingId; }
+    public void setTrackingId(String trackingId) { this.trackingId = trackingId; }
 }
\ No newline at end of file
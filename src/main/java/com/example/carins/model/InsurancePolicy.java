@@ -4,11 +4,18 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 
 import java.time.LocalDate;
+import java.util.Objects;
 
+// ix_policy_car_dates serves the per-car lookups (existsActiveOnDate, periods, overlap and coverage scans ordered
+// by start date); ix_policy_expiry_backlog keeps the not-yet-notified rows as one contiguous, end-date ordered range,
+// the closest H2 gets to a partial index on expiry_notified = false
 @Entity
-@Table(name = "insurancepolicy")
+@Table(name = "insurancepolicy", indexes = {
+        @Index(name = "ix_policy_car_dates", columnList = "car_id, start_date, end_date"),
+        @Index(name = "ix_policy_expiry_backlog", columnList = "expiry_notified, end_date")
+})
 public class InsurancePolicy {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence
     private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -21,6 +28,7 @@ public class InsurancePolicy {
     private LocalDate endDate; // nullable == open-ended
     @Column(nullable = false)
     private Boolean expiryNotified = false;
+    private Integer reminderStage; // shortest lead time in days the owner has been reminded of, null before any
 
     public InsurancePolicy() {}
     public InsurancePolicy(Car car, String provider, LocalDate startDate, LocalDate endDate) {
@@ -36,7 +44,11 @@ public class InsurancePolicy {
     public LocalDate getStartDate() { return startDate; }
     public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
     public LocalDate getEndDate() { return endDate; }
-    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+    public void setEndDate(LocalDate endDate) {
+        if (!Objects.equals(this.endDate, endDate)) reminderStage = null; // a new end date is reminded afresh
+        this.endDate = endDate;
+    }
     public Boolean isExpiryNotified() {return expiryNotified;}
     public void setExpiryNotified(Boolean expiryNotified) {this.expiryNotified = expiryNotified;}
+    public Integer getReminderStage() { return reminderStage; }
 }
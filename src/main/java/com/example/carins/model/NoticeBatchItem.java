@@ -0,0 +1,41 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+
+// A policy's place in a notification that has been composed but not yet confirmed (kind is "expiry" or
+// "reminder<days>"): while the row exists, the policy goes out again in that notification under the same key
+@Entity
+@Table(name = "notice_batch_item")
+public class NoticeBatchItem implements Persistable<NoticeBatchItem.Key> {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(nullable = false, length = 80)
+    private String notificationKey;
+
+    @Transient
+    private boolean fresh = true; // items are only ever inserted and deleted, so saveAll need not look them up first
+
+    public NoticeBatchItem() {}
+    public NoticeBatchItem(String kind, Long policyId, String notificationKey) {
+        this.key = new Key(kind, policyId); this.notificationKey = notificationKey;
+    }
+
+    @Override
+    public Key getId() { return key; }
+    @Override
+    public boolean isNew() { return fresh; }
+    @PostLoad
+    void loaded() { fresh = false; }
+
+    public String getKind() { return key.kind(); }
+    public Long getPolicyId() { return key.policyId(); }
+    public String getNotificationKey() { return notificationKey; }
+
+    @Embeddable
+    public record Key(@Column(length = 32) String kind, Long policyId) implements Serializable {}
+}
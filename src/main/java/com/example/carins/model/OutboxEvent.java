@@ -0,0 +1,56 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// A change appended in the transaction that made it. streamOffset stays null until OutboxRelay has seen the row
+// committed and numbered it; consumers only ever see numbered rows, so resuming from an offset never skips one.
+@Entity
+@Table(name = "outbox_event", indexes = @Index(name = "ux_outbox_offset", columnList = "stream_offset", unique = true))
+public class OutboxEvent {
+
+    public enum Type {
+        POLICY_CREATED("policy"), POLICY_UPDATED("policy"), CLAIM_CREATED("claim");
+
+        private final String aggregate;
+
+        Type(String aggregate) {
+            this.aggregate = aggregate;
+        }
+
+        public String aggregate() {
+            return aggregate;
+        }
+    }
+
+    @Id @PooledSequence
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Type eventType;
+
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    @Column(nullable = false, length = 4000)
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Long streamOffset;
+
+    public OutboxEvent() {}
+    public OutboxEvent(Type eventType, Long aggregateId, String payload) {
+        this.eventType = eventType; this.aggregateId = aggregateId; this.payload = payload; this.createdAt = Instant.now();
+    }
+
+    public Long getId() { return id; }
+    public Type getEventType() { return eventType; }
+    public Long getAggregateId() { return aggregateId; }
+    public String getPayload() { return payload; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Long getStreamOffset() { return streamOffset; }
+}
@@ -0,0 +1,21 @@
+package com.example.carins.model;
+
+import jakarta.persistence.*;
+
+// Last offset an in-process change-event subscriber has processed, so it resumes there after a restart
+@Entity
+@Table(name = "outbox_subscription")
+public class OutboxSubscription {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private long lastOffset;
+
+    public OutboxSubscription() {}
+
+    public String getName() { return name; }
+    public long getLastOffset() { return lastOffset; }
+}
@@ -1,13 +1,17 @@
 package com.example.carins.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 
 @Entity
 @Table(name = "owner")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Owner {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @PooledSequence
     private Long id;
     @NotBlank
     private String name;
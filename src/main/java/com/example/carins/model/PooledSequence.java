@@ -0,0 +1,16 @@
+package com.example.carins.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+// Sequence-backed id using the pooled-lo optimizer. The sequence is named <entity>_seq and
+// the block size comes from carins.id.allocation-size
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface PooledSequence {}
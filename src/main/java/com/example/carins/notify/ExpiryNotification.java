@@ -0,0 +1,90 @@
+package com.example.carins.notify;
+
+import com.example.carins.repo.projection.PolicyNoticeRow;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One owner's expired (or soon expiring) policies, rendered as a single message. A new notification's idempotency
+// key is derived from the kind of message, the owner and the sorted policy ids; NoticeBatches stores it per policy
+// before the first send, so a retry or a sweep that died before flagging re-sends the same batch under the same key
+// even when the owner has more policies due by then, and a sink can drop the duplicate.
+public record ExpiryNotification(String idempotencyKey, String kind, Long ownerId, String recipientName,
+                                 String recipientEmail, String subject, String body, List<PolicyNoticeRow> policies) {
+
+    public static final String EXPIRY = "expiry";
+
+    public static String reminderKind(int leadDays) {
+        return "reminder" + leadDays;
+    }
+
+    public static ExpiryNotification render(List<PolicyNoticeRow> policies) {
+        String subject = policies.size() == 1
+                ? "Your car insurance policy has expired"
+                : policies.size() + " of your car insurance policies have expired";
+        return compose(EXPIRY, subject, "The following insurance policies have expired:", "ended",
+                "The cars above are not insured until a new policy starts.", policies);
+    }
+
+    public static ExpiryNotification reminder(int leadDays, List<PolicyNoticeRow> policies) {
+        String subject = (policies.size() == 1
+                ? "Your car insurance policy expires"
+                : policies.size() + " of your car insurance policies expire") + " within " + leadDays + " days";
+        return compose(reminderKind(leadDays), subject, "The following insurance policies expire within " + leadDays + " days:",
+                "ends", "Renew them before they end to keep the cars insured.", policies);
+    }
+
+    public boolean isExpiry() {
+        return EXPIRY.equals(kind);
+    }
+
+    public List<Long> policyIds() {
+        return policies.stream().map(PolicyNoticeRow::id).toList();
+    }
+
+    public ExpiryNotification withKey(String key) {
+        return new ExpiryNotification(key, kind, ownerId, recipientName, recipientEmail, subject, body, policies);
+    }
+
+    // rows grouped per owner, in the order owners first appear
+    public static List<List<PolicyNoticeRow>> byOwner(List<PolicyNoticeRow> rows) {
+        Map<Long, List<PolicyNoticeRow>> byOwner = new LinkedHashMap<>();
+        for (PolicyNoticeRow row : rows) {
+            byOwner.computeIfAbsent(row.ownerId(), id -> new ArrayList<>()).add(row);
+        }
+        return List.copyOf(byOwner.values());
+    }
+
+    private static ExpiryNotification compose(String kind, String subject, String intro, String endVerb,
+                                              String closing, List<PolicyNoticeRow> policies) {
+        PolicyNoticeRow first = policies.get(0);
+        StringBuilder body = new StringBuilder()
+                .append("Dear ").append(first.ownerName()).append(",\n\n")
+                .append(intro).append("\n\n");
+        for (PolicyNoticeRow p : policies) {
+            body.append("  - ").append(p.vin()).append(": ")
+                    .append(p.provider() == null ? "policy" : p.provider() + " policy").append(' ').append(p.id())
+                    .append(", ").append(endVerb).append(' ').append(p.endDate()).append('\n');
+        }
+        body.append('\n').append(closing).append('\n');
+        return new ExpiryNotification(key(kind, first.ownerId(), policies), kind, first.ownerId(), first.ownerName(),
+                first.ownerEmail(), subject, body.toString(), List.copyOf(policies));
+    }
+
+    private static String key(String kind, Long ownerId, List<PolicyNoticeRow> policies) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            policies.stream().map(PolicyNoticeRow::id).sorted()
+                    .forEach(id -> digest.update((id + ",").getBytes(StandardCharsets.US_ASCII)));
+            return kind + "-" + ownerId + "-" + HexFormat.of().formatHex(digest.digest(), 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.carins.notify;
+
+import com.example.carins.repo.projection.PolicyNoticeRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Default sink: the log lines the expiry cron has always written, one per policy, under the notification key;
+// reminders are logged as such, with the end date still ahead
+@Component
+@ConditionalOnProperty(name = "carins.notifications.sink", havingValue = "log", matchIfMissing = true)
+public class LoggingNotificationSink implements NotificationSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingNotificationSink.class);
+
+    @Override
+    public boolean send(ExpiryNotification notification) {
+        for (PolicyNoticeRow p : notification.policies()) {
+            if (notification.isExpiry()) {
+                logger.info("Policy {} for car {} expired on {} (owner {}, notification {})",
+                        p.id(), p.carId(), p.endDate(), notification.ownerId(), notification.idempotencyKey());
+            } else {
+                logger.info("Reminder: policy {} for car {} expires on {} (owner {}, notification {})",
+                        p.id(), p.carId(), p.endDate(), notification.ownerId(), notification.idempotencyKey());
+            }
+        }
+        return true;
+    }
+}
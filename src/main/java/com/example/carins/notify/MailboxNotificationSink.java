@@ -0,0 +1,50 @@
+package com.example.carins.notify;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Stand-in for a mail gateway: every notification becomes <dir>/<idempotency key>.eml. The message is written
+// to a temporary file and renamed into place, so a reader never sees half a message, and a key that already
+// has a file is not written again.
+@Component
+@ConditionalOnProperty(name = "carins.notifications.sink", havingValue = "mailbox")
+public class MailboxNotificationSink implements NotificationSink {
+
+    private final Path dir;
+
+    public MailboxNotificationSink(@Value("${carins.notifications.mailbox.dir:data/mailbox}") Path dir) {
+        this.dir = dir;
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    @Override
+    public boolean send(ExpiryNotification notification) throws IOException {
+        Path target = dir.resolve(notification.idempotencyKey() + ".eml");
+        if (Files.exists(target)) return false;
+        Files.createDirectories(dir);
+        String message = "To: " + notification.recipientName() + " <" + notification.recipientEmail() + ">\n" +
+                         "Subject: " + notification.subject() + "\n" +
+                         "Idempotency-Key: " + notification.idempotencyKey() + "\n\n" +
+                         notification.body();
+        Path temp = Files.createTempFile(dir, notification.idempotencyKey(), ".tmp");
+        try {
+            Files.writeString(temp, message, StandardCharsets.UTF_8);
+            Files.move(temp, target);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false; // a concurrent send of the same key won
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.carins.notify;
+
+import com.example.carins.model.NoticeBatchItem;
+import com.example.carins.repo.NoticeBatchItemRepository;
+import com.example.carins.repo.projection.PolicyNoticeRow;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Persists which notification each policy was sent in until the send is confirmed. Policies of an unconfirmed
+// batch go out again in that batch, under its stored key; only the rest are grouped per owner into new
+// notifications, whose keys are stored before they are handed to the sink.
+@Component
+public class NoticeBatches {
+
+    private final NoticeBatchItemRepository repository;
+    private final TransactionTemplate transactionTemplate;
+
+    public NoticeBatches(NoticeBatchItemRepository repository, TransactionTemplate transactionTemplate) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public List<ExpiryNotification> compose(String kind, List<PolicyNoticeRow> rows,
+                                            Function<List<PolicyNoticeRow>, ExpiryNotification> render) {
+        if (rows.isEmpty()) return List.of();
+        Map<Long, String> pendingKeys = new LinkedHashMap<>();
+        for (NoticeBatchItem item : repository.findPending(kind, rows.stream().map(PolicyNoticeRow::id).toList())) {
+            pendingKeys.put(item.getPolicyId(), item.getNotificationKey());
+        }
+        Map<String, List<PolicyNoticeRow>> pending = new LinkedHashMap<>();
+        List<PolicyNoticeRow> fresh = new ArrayList<>();
+        for (PolicyNoticeRow row : rows) {
+            String key = pendingKeys.get(row.id());
+            if (key == null) fresh.add(row);
+            else pending.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+        }
+        List<ExpiryNotification> notifications = new ArrayList<>();
+        pending.forEach((key, policies) -> notifications.add(render.apply(policies).withKey(key)));
+        List<ExpiryNotification> created = ExpiryNotification.byOwner(fresh).stream().map(render).toList();
+        if (!created.isEmpty()) {
+            List<NoticeBatchItem> items = new ArrayList<>();
+            for (ExpiryNotification n : created) {
+                n.policyIds().forEach(id -> items.add(new NoticeBatchItem(kind, id, n.idempotencyKey())));
+            }
+            transactionTemplate.executeWithoutResult(status -> repository.saveAll(items));
+        }
+        notifications.addAll(created);
+        return notifications;
+    }
+
+    // forgets the batches of delivered policies; call in the transaction that records the delivery
+    public void confirm(String kind, Collection<Long> policyIds) {
+        if (!policyIds.isEmpty()) repository.deletePending(kind, policyIds);
+    }
+}
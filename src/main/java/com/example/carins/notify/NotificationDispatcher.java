@@ -0,0 +1,115 @@
+package com.example.carins.notify;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Hands notifications to the sink with at most `parallelism` sends in flight across all expiry workers. A failed
+// send is retried with exponential backoff up to max-attempts; notifications that still fail are left out of the
+// result, so their policies stay unflagged and the next sweep sends them again under the same key.
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final NotificationSink sink;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Semaphore permits;
+    private final ExecutorService senders;
+    private final Counter sentCounter;
+    private final Counter duplicateCounter;
+    private final Counter retryCounter;
+    private final Counter failedCounter;
+    private final Timer sendTimer;
+
+    public NotificationDispatcher(NotificationSink sink,
+                                  @Value("${carins.notifications.parallelism:8}") int parallelism,
+                                  @Value("${carins.notifications.max-attempts:3}") int maxAttempts,
+                                  @Value("${carins.notifications.retry-backoff:PT0.5S}") Duration retryBackoff,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                  MeterRegistry meterRegistry) {
+        this.sink = sink;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        // the semaphore is what bounds sends; the fixed pool only matters without virtual threads
+        this.permits = new Semaphore(parallelism, true);
+        this.senders = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("notification-sender-", 1).factory())
+                : Executors.newFixedThreadPool(parallelism, Thread.ofPlatform().name("notification-sender-", 1).factory());
+        this.sentCounter = Counter.builder("carins.notifications.sent").register(meterRegistry);
+        this.duplicateCounter = Counter.builder("carins.notifications.duplicates")
+                .description("Sends the sink dropped because the idempotency key was already delivered")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("carins.notifications.retries").register(meterRegistry);
+        this.failedCounter = Counter.builder("carins.notifications.failed").register(meterRegistry);
+        this.sendTimer = Timer.builder("carins.notifications.send")
+                .description("Duration of successful notification sends")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Sends all notifications and waits for them; returns the delivered ones (duplicates included) in input order
+    public List<ExpiryNotification> dispatch(List<ExpiryNotification> notifications) throws InterruptedException {
+        List<Future<Boolean>> results = new ArrayList<>(notifications.size());
+        for (ExpiryNotification notification : notifications) {
+            results.add(senders.submit(() -> deliver(notification)));
+        }
+        List<ExpiryNotification> delivered = new ArrayList<>(notifications.size());
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                if (results.get(i).get()) delivered.add(notifications.get(i));
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Notification sender failed", e.getCause());
+            }
+        }
+        return delivered;
+    }
+
+    private boolean deliver(ExpiryNotification notification) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            permits.acquire();
+            try {
+                long started = System.nanoTime();
+                boolean fresh = sink.send(notification);
+                sendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                (fresh ? sentCounter : duplicateCounter).increment();
+                return true;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    failedCounter.increment();
+                    logger.warn("Notification {} for owner {} failed after {} attempts",
+                            notification.idempotencyKey(), notification.ownerId(), attempt, e);
+                    return false;
+                }
+                retryCounter.increment();
+            } finally {
+                permits.release();
+            }
+            // back off without holding a permit, so other notifications keep flowing
+            Thread.sleep(retryBackoff.toMillis() << (attempt - 1));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+    }
+}
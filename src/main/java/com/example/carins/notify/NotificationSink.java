@@ -0,0 +1,9 @@
+package com.example.carins.notify;
+
+// Where expiry notifications are delivered; chosen with carins.notifications.sink. Sends may be repeated with the
+// same idempotency key and from several threads at once; a sink that can tell answers false for a key it has
+// already delivered. A thrown exception counts as a failed attempt and is retried by NotificationDispatcher.
+public interface NotificationSink {
+
+    boolean send(ExpiryNotification notification) throws Exception;
+}
@@ -0,0 +1,120 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.CarEventRow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+
+// Policies and claims of a car merged and ordered by the database in a single query
+@Repository
+public class CarHistoryRepository {
+
+    private static final String POLICIES =
+            "select 'POLICY' as event_type, 0 as type_rank, p.start_date as event_date, p.id as ref_id, " +
+            "p.provider as provider, p.end_date as end_date, " +
+            "cast(null as varchar(255)) as description, cast(null as numeric(38, 2)) as amount " +
+            "from insurancepolicy p where p.car_id = :carId and p.start_date is not null";
+
+    private static final String CLAIMS =
+            "select 'CLAIM', 1, c.claim_date, c.id, null, null, c.description, c.amount " +
+            "from insuranceclaim c where c.car_id = :carId";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final MeterRegistry meterRegistry;
+
+    public CarHistoryRepository(NamedParameterJdbcTemplate jdbc, MeterRegistry meterRegistry) {
+        this.jdbc = jdbc;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Timed like the Spring Data repositories; the time includes what `action` does with each row
+    public void forEachEvent(HistoryFilter filter, Consumer<CarEventRow> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String state = "SUCCESS", exception = "None";
+        try {
+            queryEvents(filter, action);
+        } catch (RuntimeException e) {
+            state = "ERROR";
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("spring.data.repository.invocations",
+                    "repository", "CarHistoryRepository", "method", "forEachEvent",
+                    "state", state, "exception", exception));
+        }
+    }
+
+    private void queryEvents(HistoryFilter filter, Consumer<CarEventRow> action) {
+        MapSqlParameterSource params = new MapSqlParameterSource("carId", filter.carId());
+        StringBuilder policies = new StringBuilder(POLICIES);
+        StringBuilder claims = new StringBuilder(CLAIMS);
+        if (filter.from() != null) {
+            policies.append(" and p.start_date >= :from");
+            claims.append(" and c.claim_date >= :from");
+            params.addValue("from", filter.from());
+        }
+        if (filter.to() != null) {
+            policies.append(" and p.start_date <= :to");
+            claims.append(" and c.claim_date <= :to");
+            params.addValue("to", filter.to());
+        }
+
+        StringBuilder sql = new StringBuilder("select event_type, event_date, ref_id, provider, end_date, description, amount from (")
+                .append(policies).append(" union all ").append(claims).append(") e");
+        if (filter.after() != null) {
+            sql.append(" where e.event_date > :afterDate or (e.event_date = :afterDate and " +
+                       "(e.type_rank > :afterRank or (e.type_rank = :afterRank and e.ref_id > :afterId)))");
+            params.addValue("afterDate", filter.after().eventDate())
+                    .addValue("afterRank", filter.after().typeRank())
+                    .addValue("afterId", filter.after().refId());
+        }
+        sql.append(" order by e.event_date, e.type_rank, e.ref_id");
+        if (filter.limit() != null) {
+            sql.append(" fetch first :limit rows only");
+            params.addValue("limit", filter.limit());
+        }
+
+        jdbc.query(sql.toString(), params, (RowCallbackHandler) rs -> {
+            action.accept(new CarEventRow(
+                    rs.getString(1),
+                    rs.getObject(2, LocalDate.class),
+                    rs.getLong(3),
+                    rs.getString(4),
+                    rs.getObject(5, LocalDate.class),
+                    rs.getString(6),
+                    rs.getBigDecimal(7)));
+        });
+    }
+
+    public record HistoryFilter(Long carId, LocalDate from, LocalDate to, Cursor after, Integer limit) {}
+
+    // Keyset position in the timeline, rendered as "date_rank_id"
+    public record Cursor(LocalDate eventDate, int typeRank, long refId) {
+
+        public static Cursor of(CarEventRow row) {
+            return new Cursor(row.eventDate(), row.typeRank(), row.refId());
+        }
+
+        public static Cursor parse(String value) {
+            String[] parts = value.split("_");
+            if (parts.length != 3) throw new IllegalArgumentException("Invalid cursor: " + value);
+            try {
+                return new Cursor(LocalDate.parse(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return eventDate + "_" + typeRank + "_" + refId;
+        }
+    }
+}
@@ -1,17 +1,51 @@
 package com.example.carins.repo;
 
+import com.example.carins.config.SecondLevelCacheConfig;
 import com.example.carins.model.*;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import com.example.carins.web.dto.CarDto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CarRepository extends JpaRepository<Car, Long> {
-    // TODO: enforce unique VIN at DB and via validation (exercise)
     @EntityGraph(attributePaths = {"owner"})
     List<Car> findAll();
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.CAR_BY_VIN_REGION)})
     Optional<Car> findByVin(String vin);
-}
\ No newline at end of file
+
+    // existence check resolved through findById, so hot paths are answered from the second-level cache; a miss
+    // loads the whole car, where existsById would run a count query
+    default boolean cachedExistsById(Long id) {
+        return findById(id).isPresent();
+    }
+
+    // keyset page straight into DTOs, so nothing is attached to the persistence context
+    @Query("select new com.example.carins.web.dto.CarDto(c.id, c.vin, c.make, c.model, c.yearOfManufacture, o.id, o.name, o.email) " +
+           "from Car c join c.owner o where c.id > :afterId order by c.id")
+    List<CarDto> findDtosAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query("select c.id from Car c where c.id > :afterId order by c.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query("select c.id from Car c where c.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // rows of {carId, ownerId} for the cars that exist
+    @Query("select c.id, o.id from Car c left join c.owner o where c.id in :ids")
+    List<Object[]> findOwnerIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select c.id from Car c where c.vin in :vins")
+    List<Long> findIdsByVinIn(@Param("vins") Collection<String> vins);
+
+    @Query("select c from Car c join fetch c.owner where c.vin in :vins")
+    List<Car> findWithOwnerByVinIn(@Param("vins") Collection<String> vins);
+}
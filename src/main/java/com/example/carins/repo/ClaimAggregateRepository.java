@@ -0,0 +1,9 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.ClaimAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+// Rows are written by ClaimAggregates with batched MERGE statements; this repository only reads them
+@Repository
+public interface ClaimAggregateRepository extends JpaRepository<ClaimAggregate, ClaimAggregate.Key> {}
@@ -0,0 +1,44 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.ExpiryPartitionLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ExpiryPartitionLeaseRepository extends JpaRepository<ExpiryPartitionLease, Integer> {
+
+    // Locks one free partition that was not finished in the current run; rows locked by other nodes are skipped
+    @Query(value = "select l.partition_id from expiry_partition_lease l " +
+                   "where l.partition_id < :partitions and l.lease_until < :now " +
+                   "and (l.completed_at is null or l.completed_at < :runStartedAt) " +
+                   "order by l.partition_id fetch first 1 rows only for update skip locked",
+           nativeQuery = true)
+    List<Integer> lockClaimable(@Param("partitions") int partitions, @Param("now") Instant now,
+                                @Param("runStartedAt") Instant runStartedAt);
+
+    @Modifying
+    @Query("update ExpiryPartitionLease l set l.ownerNode = :node, l.leaseUntil = :until where l.partitionId = :partition")
+    int claim(@Param("partition") int partition, @Param("node") String node, @Param("until") Instant until);
+
+    @Modifying
+    @Query("update ExpiryPartitionLease l set l.leaseUntil = :until " +
+           "where l.partitionId = :partition and l.ownerNode = :node")
+    int renew(@Param("partition") int partition, @Param("node") String node, @Param("until") Instant until);
+
+    @Modifying
+    @Query("update ExpiryPartitionLease l set l.ownerNode = null, l.leaseUntil = :now, l.completedAt = :now " +
+           "where l.partitionId = :partition and l.ownerNode = :node")
+    int release(@Param("partition") int partition, @Param("node") String node, @Param("now") Instant now);
+
+    // gives a partition back unfinished, e.g. after a failure, so any node may pick it up again
+    @Modifying
+    @Query("update ExpiryPartitionLease l set l.ownerNode = null, l.leaseUntil = :now " +
+           "where l.partitionId = :partition and l.ownerNode = :node")
+    int abandon(@Param("partition") int partition, @Param("node") String node, @Param("now") Instant now);
+}
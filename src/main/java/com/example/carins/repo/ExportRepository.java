@@ -0,0 +1,122 @@
+package com.example.carins.repo;
+
+import com.example.carins.export.ExportColumn;
+import com.example.carins.export.ExportColumn.Type;
+import com.example.carins.export.RowSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Full-table extracts read through one forward-only, read-only cursor and handed to a RowSink row by row, so
+// nothing but the driver's fetch buffer is held whatever the extract size. The connection stays checked out
+// until the sink has written the last row, i.e. for as long as the client takes to download it.
+@Repository
+public class ExportRepository {
+
+    public static final List<ExportColumn> POLICY_COLUMNS = List.of(
+            ExportColumn.of("id", Type.LONG),
+            ExportColumn.of("car_id", Type.LONG),
+            ExportColumn.of("provider", Type.STRING),
+            ExportColumn.of("start_date", Type.DATE),
+            ExportColumn.of("end_date", Type.DATE),
+            ExportColumn.of("expiry_notified", Type.BOOLEAN));
+
+    public static final List<ExportColumn> CLAIM_COLUMNS = List.of(
+            ExportColumn.of("id", Type.LONG),
+            ExportColumn.of("car_id", Type.LONG),
+            ExportColumn.of("claim_date", Type.DATE),
+            ExportColumn.of("description", Type.STRING),
+            ExportColumn.decimal("amount", 2),
+            ExportColumn.of("tracking_id", Type.STRING));
+
+    private final JdbcTemplate jdbc;
+    private final int fetchSize;
+
+    public ExportRepository(JdbcTemplate jdbc, @Value("${carins.export.fetch-size:1000}") int fetchSize) {
+        this.jdbc = jdbc;
+        this.fetchSize = fetchSize;
+    }
+
+    // Policies active somewhere in [from, to] (either bound optional) and of the given provider if set, by id
+    public long exportPolicies(LocalDate from, LocalDate to, String provider, RowSink sink) {
+        StringBuilder sql = new StringBuilder(
+                "select id, car_id, provider, start_date, end_date, expiry_notified from insurancepolicy where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (to != null) {
+            sql.append(" and start_date <= ?");
+            args.add(Date.valueOf(to));
+        }
+        if (from != null) {
+            sql.append(" and (end_date is null or end_date >= ?)");
+            args.add(Date.valueOf(from));
+        }
+        if (provider != null) {
+            sql.append(" and provider = ?");
+            args.add(provider);
+        }
+        return stream(sql.append(" order by id").toString(), args, POLICY_COLUMNS, sink);
+    }
+
+    // Claims dated in [from, to] (either bound optional), by id
+    public long exportClaims(LocalDate from, LocalDate to, RowSink sink) {
+        StringBuilder sql = new StringBuilder(
+                "select id, car_id, claim_date, description, amount, tracking_id from insuranceclaim where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            sql.append(" and claim_date >= ?");
+            args.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" and claim_date <= ?");
+            args.add(Date.valueOf(to));
+        }
+        return stream(sql.append(" order by id").toString(), args, CLAIM_COLUMNS, sink);
+    }
+
+    private long stream(String sql, List<Object> args, List<ExportColumn> columns, RowSink sink) {
+        Long rows = jdbc.execute((ConnectionCallback<Long>) connection -> {
+            // H2 materializes a whole result before returning the first row unless told to evaluate lazily
+            boolean h2 = "H2".equals(connection.getMetaData().getDatabaseProductName());
+            if (h2) setLazy(connection, true);
+            try (PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+                long count = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    sink.start(columns);
+                    while (rs.next()) {
+                        sink.row(rs);
+                        count++;
+                    }
+                    sink.finish();
+                }
+                return count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (h2) setLazy(connection, false);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    private static void setLazy(Connection connection, boolean lazy) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+}
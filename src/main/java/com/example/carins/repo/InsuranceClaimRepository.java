@@ -2,11 +2,22 @@ package com.example.carins.repo;
 
 import com.example.carins.model.InsuranceClaim;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface InsuranceClaimRepository extends JpaRepository<InsuranceClaim, Long> {
     List<InsuranceClaim> findByCarIdOrderByClaimDateAsc(Long carId);
+
+    @Query("select c.id from InsuranceClaim c where c.trackingId = :trackingId")
+    Optional<Long> findIdByTrackingId(@Param("trackingId") String trackingId);
+
+    // rows of [trackingId, id]
+    @Query("select c.trackingId, c.id from InsuranceClaim c where c.trackingId in :trackingIds")
+    List<Object[]> findIdsByTrackingIdIn(@Param("trackingIds") Collection<String> trackingIds);
 }
\ No newline at end of file
@@ -1,25 +1,103 @@
 package com.example.carins.repo;
 
 import com.example.carins.model.*;
+import com.example.carins.repo.projection.InsuranceStatus;
+import com.example.carins.repo.projection.PolicyNoticeRow;
+import com.example.carins.repo.projection.PolicyPeriod;
+import com.example.carins.repo.projection.PolicySpan;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface InsurancePolicyRepository extends JpaRepository<InsurancePolicy, Long> {
 
-    @Query("select case when count(p) > 0 then true else false end " +
-           "from InsurancePolicy p " +
-           "where p.car.id = :carId " +
-           "and p.startDate <= :date " +
-           "and (p.endDate is null or p.endDate >= :date)")
+    // stops at the first matching policy instead of counting all of them
+    @Query(value = "select exists (select 1 from insurancepolicy p where p.car_id = :carId " +
+                   "and p.start_date <= :date and (p.end_date is null or p.end_date >= :date))",
+           nativeQuery = true)
     boolean existsActiveOnDate(@Param("carId") Long carId, @Param("date") LocalDate date);
 
+    // Car existence and coverage in one round trip: 0 = no such car, 1 = insured, 2 = uninsured.
+    // Both are EXISTS probes on an index (car primary key, ix_policy_car_dates); nothing is hydrated.
+    @Query(value = "select case " +
+                   "when not exists (select 1 from car c where c.id = :carId) then 0 " +
+                   "when exists (select 1 from insurancepolicy p where p.car_id = :carId " +
+                   "and p.start_date <= :date and (p.end_date is null or p.end_date >= :date)) then 1 " +
+                   "else 2 end",
+           nativeQuery = true)
+    int findInsuranceStatusCode(@Param("carId") Long carId, @Param("date") LocalDate date);
+
+    default InsuranceStatus findInsuranceStatus(Long carId, LocalDate date) {
+        return InsuranceStatus.values()[findInsuranceStatusCode(carId, date)];
+    }
+
     List<InsurancePolicy> findByCarId(Long carId);
 
-    @Query("select p from InsurancePolicy p where p.endDate < :today and p.expiryNotified = false")
-    List<InsurancePolicy> findExpiredNotNotified(@Param("today") LocalDate today);
-}
\ No newline at end of file
+    @Query("select new com.example.carins.repo.projection.PolicyPeriod(p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p where p.car.id = :carId")
+    List<PolicyPeriod> findPeriodsByCarId(@Param("carId") Long carId);
+
+    @Query("select new com.example.carins.repo.projection.PolicySpan(p.id, p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p where p.car.id = :carId and p.startDate is not null")
+    List<PolicySpan> findSpansByCarId(@Param("carId") Long carId);
+
+    @Query("select new com.example.carins.repo.projection.PolicySpan(p.id, p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p where p.id = :id")
+    Optional<PolicySpan> findSpanById(@Param("id") Long id);
+
+    // policies ending in [from, to]; what PolicyExpiryWheel answers from memory once it is loaded
+    @Query("select new com.example.carins.repo.projection.PolicySpan(p.id, p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p where p.endDate between :from and :to order by p.endDate, p.id")
+    List<PolicySpan> findEndingBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select new com.example.carins.repo.projection.PolicyPeriod(p.car.id, p.startDate, p.endDate) " +
+           "from InsurancePolicy p where p.car.id in :carIds")
+    List<PolicyPeriod> findPeriodsByCarIdIn(@Param("carIds") Collection<Long> carIds);
+
+    // owners of one owner-id hash partition of the expiry backlog, read off ix_policy_expiry_backlog
+    @Query("select distinct p.car.owner.id from InsurancePolicy p " +
+           "where p.endDate < :today and p.expiryNotified = false and mod(p.car.owner.id, :partitions) = :partition " +
+           "order by p.car.owner.id")
+    List<Long> findOwnerIdsWithExpiredNotNotified(@Param("today") LocalDate today,
+                                                  @Param("partitions") int partitions,
+                                                  @Param("partition") int partition);
+
+    @Query("select count(p) from InsurancePolicy p where p.endDate < :today and p.expiryNotified = false")
+    long countExpiredNotNotified(@Param("today") LocalDate today);
+
+    // the expiry backlog of a window of owners, read as plain rows in (owner, policy) order
+    @Query("select new com.example.carins.repo.projection.PolicyNoticeRow(" +
+           "p.id, c.id, c.vin, p.provider, p.endDate, o.id, o.name, o.email) " +
+           "from InsurancePolicy p join p.car c join c.owner o " +
+           "where c.owner.id in :ownerIds and p.endDate < :today and p.expiryNotified = false " +
+           "order by o.id, p.id")
+    List<PolicyNoticeRow> findExpiredNotNotifiedByOwnerIdIn(@Param("today") LocalDate today,
+                                                            @Param("ownerIds") Collection<Long> ownerIds);
+
+    @Query("select new com.example.carins.repo.projection.PolicyNoticeRow(" +
+           "p.id, c.id, c.vin, p.provider, p.endDate, o.id, o.name, o.email) " +
+           "from InsurancePolicy p join p.car c join c.owner o where p.id in :ids order by o.id, p.id")
+    List<PolicyNoticeRow> findNoticeRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // the policies among ids not yet reminded at this lead time or a shorter one
+    @Query("select new com.example.carins.repo.projection.PolicyNoticeRow(" +
+           "p.id, c.id, c.vin, p.provider, p.endDate, o.id, o.name, o.email) " +
+           "from InsurancePolicy p join p.car c join c.owner o " +
+           "where p.id in :ids and (p.reminderStage is null or p.reminderStage > :stage) order by o.id, p.id")
+    List<PolicyNoticeRow> findNoticeRowsDueForReminder(@Param("ids") Collection<Long> ids, @Param("stage") int stage);
+
+    @Modifying
+    @Query("update InsurancePolicy p set p.reminderStage = :stage " +
+           "where p.id in :ids and (p.reminderStage is null or p.reminderStage > :stage)")
+    int markReminded(@Param("ids") Collection<Long> ids, @Param("stage") int stage);
+
+    @Modifying
+    @Query("update InsurancePolicy p set p.expiryNotified = true where p.id in :ids and p.expiryNotified = false")
+    int markExpiryNotified(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,22 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.NoticeBatchItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NoticeBatchItemRepository extends JpaRepository<NoticeBatchItem, NoticeBatchItem.Key> {
+
+    @Query("select i from NoticeBatchItem i where i.key.kind = :kind and i.key.policyId in :policyIds")
+    List<NoticeBatchItem> findPending(@Param("kind") String kind, @Param("policyIds") Collection<Long> policyIds);
+
+    @Modifying
+    @Query("delete from NoticeBatchItem i where i.key.kind = :kind and i.key.policyId in :policyIds")
+    int deletePending(@Param("kind") String kind, @Param("policyIds") Collection<Long> policyIds);
+}
@@ -0,0 +1,67 @@
+package com.example.carins.repo;
+
+import com.example.carins.model.OutboxEvent;
+import com.example.carins.web.dto.ChangeEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads and numbering of outbox_event, plus the offsets of in-process subscribers (outbox_subscription)
+@Repository
+public class OutboxRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public OutboxRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public long latestOffset() {
+        return jdbc.queryForObject("select coalesce(max(stream_offset), 0) from outbox_event", Long.class);
+    }
+
+    // Numbers up to limit committed, not yet numbered rows in id order after the current highest offset;
+    // returns the highest offset afterwards. Call inside a transaction.
+    public long assignOffsets(int limit) {
+        List<Long> ids = jdbc.queryForList(
+                "select id from outbox_event where stream_offset is null order by id limit ?", Long.class, limit);
+        long offset = latestOffset();
+        if (ids.isEmpty()) return offset;
+        List<Object[]> args = new ArrayList<>(ids.size());
+        for (Long id : ids) args.add(new Object[]{++offset, id});
+        jdbc.batchUpdate("update outbox_event set stream_offset = ? where id = ?", args);
+        return offset;
+    }
+
+    public List<ChangeEvent> findAfter(long offset, int limit) {
+        return jdbc.query("select stream_offset, event_type, aggregate_id, created_at, payload from outbox_event " +
+                          "where stream_offset > ? order by stream_offset limit ?", (rs, rowNum) -> {
+            OutboxEvent.Type type = OutboxEvent.Type.valueOf(rs.getString(2));
+            return new ChangeEvent(rs.getLong(1), type, type.aggregate(), rs.getLong(3),
+                    rs.getObject(4, OffsetDateTime.class).toInstant(), rs.getString(5));
+        }, offset, limit);
+    }
+
+    // The row holding the highest offset always stays: new offsets continue from it, so emptying the table
+    // would restart the stream at 1 under readers resuming from a higher offset
+    public int deleteRelayedBefore(Instant cutoff) {
+        return jdbc.update("delete from outbox_event where stream_offset is not null and created_at < ? " +
+                           "and stream_offset < (select max(stream_offset) from outbox_event)",
+                cutoff.atOffset(ZoneOffset.UTC));
+    }
+
+    // 0 for a subscriber seen for the first time: it starts from the oldest retained event
+    public long subscriberOffset(String name) {
+        List<Long> offsets = jdbc.queryForList("select last_offset from outbox_subscription where name = ?", Long.class, name);
+        return offsets.isEmpty() ? 0 : offsets.get(0);
+    }
+
+    public void saveSubscriberOffset(String name, long offset) {
+        jdbc.update("merge into outbox_subscription (name, last_offset) key (name) values (?, ?)", name, offset);
+    }
+}
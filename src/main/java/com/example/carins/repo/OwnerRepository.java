@@ -5,10 +5,14 @@ import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OwnerRepository extends JpaRepository<Owner, Long> {}
+public interface OwnerRepository extends JpaRepository<Owner, Long> {
+    // oldest first, so when an email is shared the first owner registered with it wins
+    List<Owner> findByEmailInOrderByIdAsc(Collection<String> emails);
+}
 
 
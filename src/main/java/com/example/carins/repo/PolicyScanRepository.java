@@ -0,0 +1,39 @@
+package com.example.carins.repo;
+
+import com.example.carins.repo.projection.PolicySpan;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Whole-fleet passes over insurancepolicy, streamed row by row in (car_id, start_date, id) order
+@Repository
+public class PolicyScanRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public PolicyScanRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // Keyset page of the policies active somewhere in [from, to], after the (carId, startDate, id) cursor
+    public List<PolicySpan> findActivePage(LocalDate from, LocalDate to,
+                                           long afterCarId, LocalDate afterStart, long afterId, int limit) {
+        return jdbc.query("select id, car_id, start_date, end_date from insurancepolicy " +
+                          "where start_date is not null and start_date <= ? and (end_date is null or end_date >= ?) " +
+                          "and (car_id, start_date, id) > (?, ?, ?) order by car_id, start_date, id limit ?",
+                (rs, rowNum) -> new PolicySpan(rs.getLong(1), rs.getLong(2),
+                        rs.getObject(3, LocalDate.class), rs.getObject(4, LocalDate.class)),
+                to, from, afterCarId, afterStart, afterId, limit);
+    }
+
+    public void forEachPolicyByCar(Consumer<PolicySpan> action) {
+        jdbc.query("select id, car_id, start_date, end_date from insurancepolicy " +
+                   "where start_date is not null order by car_id, start_date, id", (RowCallbackHandler) rs ->
+                action.accept(new PolicySpan(rs.getLong(1), rs.getLong(2),
+                        rs.getObject(3, LocalDate.class), rs.getObject(4, LocalDate.class))));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.carins.repo.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// One row of the merged policy/claim timeline; provider and endDate are set for policies,
+// description and amount for claims
+public record CarEventRow(String eventType, LocalDate eventDate, long refId,
+                          String provider, LocalDate endDate, String description, BigDecimal amount) {
+
+    public static final String POLICY = "POLICY";
+    public static final String CLAIM = "CLAIM";
+
+    // tie-breaker for events on the same day: policies first, then claims
+    public int typeRank() {
+        return POLICY.equals(eventType) ? 0 : 1;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.carins.repo.projection;
+
+// Outcome of InsurancePolicyRepository.findInsuranceStatus; the ordinal is the code the query returns
+public enum InsuranceStatus {
+    CAR_NOT_FOUND, INSURED, UNINSURED
+}
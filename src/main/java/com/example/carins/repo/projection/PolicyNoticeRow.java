@@ -0,0 +1,6 @@
+package com.example.carins.repo.projection;
+
+import java.time.LocalDate;
+
+public record PolicyNoticeRow(Long id, Long carId, String vin, String provider, LocalDate endDate,
+                              Long ownerId, String ownerName, String ownerEmail) {}
@@ -0,0 +1,97 @@
+package com.example.carins.seed;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Random;
+
+// Deterministic (per FleetSpec.randomSeed) stream of owners, cars, policies and claims, handed to a Sink
+// row by row so fleets of any size are generated in constant memory. Owners come first, then each car
+// followed by its policies and claims.
+public class FleetGenerator {
+
+    private static final String[][] MODELS = {
+            {"Dacia", "Logan"}, {"Dacia", "Duster"}, {"VW", "Golf"}, {"VW", "Passat"}, {"Skoda", "Octavia"},
+            {"Renault", "Clio"}, {"Ford", "Focus"}, {"Toyota", "Corolla"}, {"BMW", "320d"}, {"Opel", "Astra"}};
+    private static final String[] PROVIDERS = {"Allianz", "Groupama", "Generali", "Omniasig", "Asirom", "Uniqa"};
+    private static final String[] CLAIMS = {"Minor collision", "Windshield damage", "Hail damage", "Parking damage",
+            "Theft attempt", "Vandalism", "Flood damage", "Side mirror"};
+
+    public interface Sink {
+        void owner(long id, String name, String email);
+        void car(long id, String vin, String make, String model, int year, long ownerId);
+        void policy(long id, long carId, String provider, LocalDate startDate, LocalDate endDate);
+        void claim(long id, long carId, LocalDate claimDate, String description, BigDecimal amount);
+    }
+
+    private final FleetSpec spec;
+    private final Random random;
+
+    public FleetGenerator(FleetSpec spec) {
+        this.spec = spec;
+        this.random = new Random(spec.randomSeed());
+    }
+
+    // Ids are handed out consecutively from the given first ids
+    public void generate(long firstOwnerId, long firstCarId, long firstPolicyId, long firstClaimId, Sink sink) {
+        for (int o = 0; o < spec.owners(); o++) {
+            long id = firstOwnerId + o;
+            sink.owner(id, "Owner " + id, "owner" + id + "@example.com");
+        }
+        long policyId = firstPolicyId, claimId = firstClaimId;
+        for (int c = 0; c < spec.cars(); c++) {
+            long carId = firstCarId + c;
+            String[] model = MODELS[random.nextInt(MODELS.length)];
+            // squaring skews ownership: low owner ids hold many cars, like fleets, most others one or none
+            double u = random.nextDouble();
+            long ownerId = firstOwnerId + (long) (spec.owners() * u * u);
+            sink.car(carId, vin(model[0], carId), model[0], model[1], 2000 + random.nextInt(25), ownerId);
+
+            LocalDate start = spec.firstPolicyStart().plusDays(random.nextInt(365));
+            LocalDate firstStart = start, lastEnd = start;
+            int policies = 1 + random.nextInt(2 * spec.policiesPerCar() - 1);
+            for (int p = 0; p < policies; p++) {
+                LocalDate end = start.plusMonths(random.nextInt(10) < 3 ? 6 : 12).minusDays(1);
+                sink.policy(policyId++, carId, PROVIDERS[random.nextInt(PROVIDERS.length)], start, end);
+                lastEnd = end;
+                double renewal = random.nextDouble();
+                if (renewal < spec.gapRate()) start = end.plusDays(2 + random.nextInt(90));
+                else if (renewal < spec.gapRate() + spec.overlapRate()) start = end.minusDays(random.nextInt(30));
+                else start = end.plusDays(1);
+            }
+
+            int span = (int) (lastEnd.toEpochDay() - firstStart.toEpochDay()) + 1;
+            long claims = claimCount();
+            for (long k = 0; k < claims; k++) {
+                sink.claim(claimId++, carId, firstStart.plusDays(random.nextInt(span)),
+                        CLAIMS[random.nextInt(CLAIMS.length)], claimAmount());
+            }
+        }
+    }
+
+    // 17 characters, unique because car ids are
+    private static String vin(String make, long carId) {
+        return "%.3s%014d".formatted(make.toUpperCase() + "XXX", carId);
+    }
+
+    // Poisson count around claimsPerCar scaled by a Pareto risk factor with mean 1
+    private long claimCount() {
+        double alpha = spec.claimSkew();
+        double risk = (alpha - 1) / alpha * Math.pow(1 - random.nextDouble(), -1 / alpha);
+        double mean = spec.claimsPerCar() * risk;
+        if (mean > 30) return Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        double limit = Math.exp(-mean), product = random.nextDouble();
+        long count = 0;
+        while (product > limit) {
+            count++;
+            product *= random.nextDouble();
+        }
+        return count;
+    }
+
+    // log-normal around a median of 800 with a long tail, never below 50
+    private BigDecimal claimAmount() {
+        double amount = Math.max(50, 800 * Math.exp(random.nextGaussian()));
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP);
+    }
+}
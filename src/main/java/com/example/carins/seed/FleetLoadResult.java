@@ -0,0 +1,15 @@
+package com.example.carins.seed;
+
+// Rows written per table; ids of each table are consecutive from the matching first id
+public record FleetLoadResult(long firstOwnerId, long owners, long firstCarId, long cars,
+                              long firstPolicyId, long policies, long firstClaimId, long claims,
+                              long elapsedMillis) {
+
+    public long rows() {
+        return owners + cars + policies + claims;
+    }
+
+    public double rowsPerMinute() {
+        return elapsedMillis == 0 ? 0 : rows() * 60_000.0 / elapsedMillis;
+    }
+}
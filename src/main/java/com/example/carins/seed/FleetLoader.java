@@ -0,0 +1,173 @@
+package com.example.carins.seed;
+
+import com.example.carins.service.ClaimAggregates;
+import com.example.carins.service.PolicyExpiryWheel;
+import com.example.carins.service.PolicyIntervalIndex;
+import com.example.carins.service.PolicyOverlapIndex;
+import com.example.carins.service.VinFilter;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes a generated fleet with batched JDBC inserts, bypassing JPA. Ids are taken from the entity
+// sequences, which are moved past the loaded rows afterwards, so the running application keeps working.
+// Loaded rows produce no change events in the outbox.
+@Component
+public class FleetLoader {
+
+    private final JdbcTemplate jdbc;
+    private final SessionFactory sessionFactory;
+    private final PolicyIntervalIndex policyIndex;
+    private final PolicyOverlapIndex overlapIndex;
+    private final PolicyExpiryWheel expiryWheel;
+    private final VinFilter vinFilter;
+    private final ClaimAggregates claimAggregates;
+    private final int batchSize;
+
+    public FleetLoader(JdbcTemplate jdbc, EntityManagerFactory entityManagerFactory, PolicyIntervalIndex policyIndex,
+                       PolicyOverlapIndex overlapIndex, PolicyExpiryWheel expiryWheel, VinFilter vinFilter,
+                       ClaimAggregates claimAggregates,
+                       @Value("${carins.seed.batch-size:1000}") int batchSize) {
+        this.jdbc = jdbc;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.policyIndex = policyIndex;
+        this.overlapIndex = overlapIndex;
+        this.expiryWheel = expiryWheel;
+        this.vinFilter = vinFilter;
+        this.claimAggregates = claimAggregates;
+        this.batchSize = batchSize;
+    }
+
+    public FleetLoadResult load(FleetSpec spec) {
+        long started = System.nanoTime();
+        if (spec.replace()) {
+            jdbc.update("delete from insuranceclaim");
+            jdbc.update("delete from insurancepolicy");
+            jdbc.update("delete from car");
+            jdbc.update("delete from owner");
+        }
+        // a sequence value not yet handed out is above every id block the application already holds
+        long ownerId = nextId("owner_seq"), carId = nextId("car_seq");
+        long policyId = nextId("insurancepolicy_seq"), claimId = nextId("insuranceclaim_seq");
+
+        BatchSink sink = new BatchSink();
+        new FleetGenerator(spec).generate(ownerId, carId, policyId, claimId, sink);
+        sink.flush();
+
+        restart("owner_seq", ownerId + sink.owners.written);
+        restart("car_seq", carId + sink.cars.written);
+        restart("insurancepolicy_seq", policyId + sink.policies.written);
+        restart("insuranceclaim_seq", claimId + sink.claims.written);
+        // rows written behind Hibernate's back: cached entities and query results may now be wrong
+        sessionFactory.getCache().evictAllRegions();
+        policyIndex.clear();
+        overlapIndex.clear();
+        expiryWheel.rebuild();
+        vinFilter.rebuild();
+        claimAggregates.rebuild();
+
+        return new FleetLoadResult(ownerId, sink.owners.written, carId, sink.cars.written,
+                policyId, sink.policies.written, claimId, sink.claims.written,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private long nextId(String sequence) {
+        return jdbc.queryForObject("select next value for " + sequence, Long.class);
+    }
+
+    private void restart(String sequence, long next) {
+        jdbc.execute("alter sequence " + sequence + " restart with " + next);
+    }
+
+    private class BatchSink implements FleetGenerator.Sink {
+
+        final Table owners = new Table("insert into owner (id, name, email) values (?, ?, ?)", (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setString(2, (String) row[1]);
+            ps.setString(3, (String) row[2]);
+        });
+        final Table cars = new Table("insert into car (id, vin, make, model, year_of_manufacture, owner_id) values (?, ?, ?, ?, ?, ?)", (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setString(2, (String) row[1]);
+            ps.setString(3, (String) row[2]);
+            ps.setString(4, (String) row[3]);
+            ps.setInt(5, (Integer) row[4]);
+            ps.setLong(6, (Long) row[5]);
+        });
+        final Table policies = new Table("insert into insurancepolicy (id, car_id, provider, start_date, end_date, expiry_notified) values (?, ?, ?, ?, ?, false)", (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setLong(2, (Long) row[1]);
+            ps.setString(3, (String) row[2]);
+            ps.setDate(4, Date.valueOf((LocalDate) row[3]));
+            ps.setDate(5, Date.valueOf((LocalDate) row[4]));
+        });
+        final Table claims = new Table("insert into insuranceclaim (id, car_id, claim_date, description, amount) values (?, ?, ?, ?, ?)", (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setLong(2, (Long) row[1]);
+            ps.setDate(3, Date.valueOf((LocalDate) row[2]));
+            ps.setString(4, (String) row[3]);
+            ps.setBigDecimal(5, (BigDecimal) row[4]);
+        });
+
+        @Override
+        public void owner(long id, String name, String email) {
+            add(owners, new Object[]{id, name, email});
+        }
+
+        @Override
+        public void car(long id, String vin, String make, String model, int year, long ownerId) {
+            add(cars, new Object[]{id, vin, make, model, year, ownerId});
+        }
+
+        @Override
+        public void policy(long id, long carId, String provider, LocalDate startDate, LocalDate endDate) {
+            add(policies, new Object[]{id, carId, provider, startDate, endDate});
+        }
+
+        @Override
+        public void claim(long id, long carId, LocalDate claimDate, String description, BigDecimal amount) {
+            add(claims, new Object[]{id, carId, claimDate, description, amount});
+        }
+
+        private void add(Table table, Object[] row) {
+            table.rows.add(row);
+            if (table.rows.size() >= batchSize) flush();
+        }
+
+        // parents before children, so foreign keys always resolve
+        void flush() {
+            owners.flush();
+            cars.flush();
+            policies.flush();
+            claims.flush();
+        }
+    }
+
+    private class Table {
+        final String sql;
+        final ParameterizedPreparedStatementSetter<Object[]> setter;
+        final List<Object[]> rows = new ArrayList<>(batchSize);
+        long written;
+
+        Table(String sql, ParameterizedPreparedStatementSetter<Object[]> setter) {
+            this.sql = sql;
+            this.setter = setter;
+        }
+
+        void flush() {
+            if (rows.isEmpty()) return;
+            jdbc.batchUpdate(sql, rows, rows.size(), setter);
+            written += rows.size();
+            rows.clear();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.carins.seed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+// Loads a synthetic fleet on startup when the "seed" profile is active, see application-seed.properties
+@Component
+@Profile("seed")
+public class FleetSeeder implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetSeeder.class);
+
+    private final FleetLoader loader;
+    private final FleetSpec spec;
+
+    public FleetSeeder(FleetLoader loader,
+                       @Value("${carins.seed.owners:50000}") int owners,
+                       @Value("${carins.seed.cars:100000}") int cars,
+                       @Value("${carins.seed.policies-per-car:4}") int policiesPerCar,
+                       @Value("${carins.seed.claims-per-car:1.5}") double claimsPerCar,
+                       @Value("${carins.seed.gap-rate:0.15}") double gapRate,
+                       @Value("${carins.seed.overlap-rate:0.05}") double overlapRate,
+                       @Value("${carins.seed.claim-skew:1.5}") double claimSkew,
+                       @Value("${carins.seed.first-policy-start:2018-01-01}") LocalDate firstPolicyStart,
+                       @Value("${carins.seed.random-seed:42}") long randomSeed,
+                       @Value("${carins.seed.replace:false}") boolean replace) {
+        this.loader = loader;
+        this.spec = new FleetSpec(owners, cars, policiesPerCar, claimsPerCar, gapRate, overlapRate, claimSkew,
+                firstPolicyStart, randomSeed, replace);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        FleetLoadResult result = loader.load(spec);
+        logger.info("Seeded {} owners, {} cars, {} policies and {} claims in {} ms ({} rows/min)",
+                result.owners(), result.cars(), result.policies(), result.claims(), result.elapsedMillis(),
+                String.format("%.0f", result.rowsPerMinute()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.carins.seed;
+
+import java.time.LocalDate;
+
+// Shape of a synthetic fleet. policiesPerCar and claimsPerCar are averages; claimSkew is the Pareto shape
+// of per-car claim risk (lower = a few cars carry most claims). gapRate/overlapRate are per policy renewal.
+public record FleetSpec(int owners, int cars, int policiesPerCar, double claimsPerCar,
+                        double gapRate, double overlapRate, double claimSkew,
+                        LocalDate firstPolicyStart, long randomSeed, boolean replace) {
+
+    public FleetSpec {
+        if (owners < 1 || cars < 1) throw new IllegalArgumentException("A fleet needs at least one owner and one car");
+        if (policiesPerCar < 1) throw new IllegalArgumentException("policiesPerCar must be at least 1");
+        if (claimSkew <= 1) throw new IllegalArgumentException("claimSkew must be greater than 1");
+    }
+
+    public static FleetSpec of(int cars) {
+        return new FleetSpec(Math.max(1, cars / 2), cars, 4, 1.5, 0.15, 0.05, 1.5,
+                LocalDate.of(2018, 1, 1), 42, false);
+    }
+
+    public FleetSpec withPolicies(int policiesPerCar) {
+        return new FleetSpec(owners, cars, policiesPerCar, claimsPerCar, gapRate, overlapRate, claimSkew,
+                firstPolicyStart, randomSeed, replace);
+    }
+
+    public FleetSpec withClaims(double claimsPerCar) {
+        return new FleetSpec(owners, cars, policiesPerCar, claimsPerCar, gapRate, overlapRate, claimSkew,
+                firstPolicyStart, randomSeed, replace);
+    }
+
+    public FleetSpec replacingExisting() {
+        return new FleetSpec(owners, cars, policiesPerCar, claimsPerCar, gapRate, overlapRate, claimSkew,
+                firstPolicyStart, randomSeed, true);
+    }
+}
@@ -3,31 +3,88 @@ package com.example.carins.service;
 import com.example.carins.model.Car;
 import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.InsuranceStatus;
+import com.example.carins.repo.projection.PolicyPeriod;
+import com.example.carins.web.dto.CarDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CarService {
 
     private final CarRepository carRepository;
     private final InsurancePolicyRepository policyRepository;
+    private final PolicyIntervalIndex policyIndex;
+    private final VinFilter vinFilter;
+    private final Counter filteredVinLookups;
+    private final Counter databaseVinLookups;
 
-    public CarService(CarRepository carRepository, InsurancePolicyRepository policyRepository) {
+    public CarService(CarRepository carRepository, InsurancePolicyRepository policyRepository,
+                      PolicyIntervalIndex policyIndex, VinFilter vinFilter, MeterRegistry meterRegistry) {
         this.carRepository = carRepository;
         this.policyRepository = policyRepository;
+        this.policyIndex = policyIndex;
+        this.vinFilter = vinFilter;
+        this.filteredVinLookups = meterRegistry.counter("carins.vin.lookups", "source", "filter");
+        this.databaseVinLookups = meterRegistry.counter("carins.vin.lookups", "source", "database");
     }
 
-    public List<Car> listCars() {
-        return carRepository.findAll();
+    // Unknown VINs are usually rejected by the filter without a query; the rest go through the query cache
+    public CarDto getCarByVin(String vin) {
+        if (!vinFilter.mightContain(vin)) {
+            filteredVinLookups.increment();
+            throw new EntityNotFoundException("Car with VIN " + vin + " not found");
+        }
+        databaseVinLookups.increment();
+        Car car = carRepository.findByVin(vin)
+                .orElseThrow(() -> new EntityNotFoundException("Car with VIN " + vin + " not found"));
+        return new CarDto(car.getId(), car.getVin(), car.getMake(), car.getModel(), car.getYearOfManufacture(),
+                car.getOwner().getId(), car.getOwner().getName(), car.getOwner().getEmail());
+    }
+
+    public List<CarDto> listCarsAfter(long afterId, int limit) {
+        return carRepository.findDtosAfter(afterId, Limit.of(limit));
     }
 
     public boolean isInsuranceValid(Long carId, LocalDate date) {
         if (carId == null || date == null) return false;
-        Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new EntityNotFoundException("Car with ID " + carId + " not found"));
-        return policyRepository.existsActiveOnDate(carId, date);
+        if (policyIndex.isEnabled()) {
+            CoverageIntervals intervals = policyIndex.intervalsFor(carId);
+            if (intervals == null) {
+                throw new EntityNotFoundException("Car with ID " + carId + " not found");
+            }
+            return intervals.covers(date.toEpochDay());
+        }
+        InsuranceStatus status = policyRepository.findInsuranceStatus(carId, date);
+        if (status == InsuranceStatus.CAR_NOT_FOUND) {
+            throw new EntityNotFoundException("Car with ID " + carId + " not found");
+        }
+        return status == InsuranceStatus.INSURED;
+    }
+
+    // Coverage of many cars with two set queries; cars that do not exist are absent from the result
+    public Map<Long, CoverageIntervals> coverageFor(Collection<Long> carIds) {
+        if (carIds.isEmpty()) return Map.of();
+        Map<Long, List<PolicyPeriod>> periodsByCar = new HashMap<>();
+        for (Long id : carRepository.findExistingIds(carIds)) {
+            periodsByCar.put(id, new ArrayList<>());
+        }
+        for (PolicyPeriod period : policyRepository.findPeriodsByCarIdIn(carIds)) {
+            List<PolicyPeriod> periods = periodsByCar.get(period.carId());
+            if (periods != null) periods.add(period);
+        }
+        Map<Long, CoverageIntervals> coverage = new HashMap<>(periodsByCar.size() * 2);
+        periodsByCar.forEach((carId, periods) -> coverage.put(carId, CoverageIntervals.of(periods)));
+        return coverage;
     }
 }
@@ -0,0 +1,95 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.OutboxRepository;
+import com.example.carins.web.dto.ChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Feeds every ChangeEventSubscriber bean from its stored offset on its own virtual thread: read a batch after
+// the offset, hand it over, save the new offset, and wait on the relay when caught up
+@Component
+public class ChangeEventDispatcher implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeEventDispatcher.class);
+
+    private final List<ChangeEventSubscriber> subscribers;
+    private final OutboxRepository outboxRepository;
+    private final OutboxRelay relay;
+    private final int batchSize;
+    private final Duration retryDelay;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public ChangeEventDispatcher(ObjectProvider<ChangeEventSubscriber> subscribers, OutboxRepository outboxRepository,
+                                 OutboxRelay relay,
+                                 @Value("${carins.outbox.subscribers.batch-size:100}") int batchSize,
+                                 @Value("${carins.outbox.subscribers.retry-delay:PT1S}") Duration retryDelay) {
+        this.subscribers = subscribers.orderedStream().toList();
+        this.outboxRepository = outboxRepository;
+        this.relay = relay;
+        this.batchSize = batchSize;
+        this.retryDelay = retryDelay;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (ChangeEventSubscriber subscriber : subscribers) {
+            threads.add(Thread.ofVirtual().name("change-events-" + subscriber.name()).start(() -> feed(subscriber)));
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread thread : threads) thread.interrupt();
+        for (Thread thread : threads) {
+            try {
+                thread.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        threads.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void feed(ChangeEventSubscriber subscriber) {
+        long offset = outboxRepository.subscriberOffset(subscriber.name());
+        while (running) {
+            try {
+                List<ChangeEvent> events = outboxRepository.findAfter(offset, batchSize);
+                if (events.isEmpty()) {
+                    relay.awaitAfter(offset, Duration.ofSeconds(30));
+                    continue;
+                }
+                subscriber.onEvents(events);
+                offset = events.get(events.size() - 1).offset();
+                outboxRepository.saveSubscriberOffset(subscriber.name(), offset);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.warn("Change-event subscriber {} failed after offset {}, retrying in {}",
+                        subscriber.name(), offset, retryDelay, e);
+                try {
+                    Thread.sleep(retryDelay.toMillis());
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+}
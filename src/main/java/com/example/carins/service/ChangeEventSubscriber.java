@@ -0,0 +1,16 @@
+package com.example.carins.service;
+
+import com.example.carins.web.dto.ChangeEvent;
+
+import java.util.List;
+
+// An in-process consumer of the change-event stream, registered as a bean and fed by ChangeEventDispatcher.
+// Delivery is at least once: a batch that throws, or whose offset was not yet saved when the node stopped,
+// is delivered again, so handlers must tolerate repeats (offsets are unique and increasing).
+public interface ChangeEventSubscriber {
+
+    // key of the stored offset; keep it stable across releases
+    String name();
+
+    void onEvents(List<ChangeEvent> events) throws Exception;
+}
@@ -0,0 +1,253 @@
+package com.example.carins.service;
+
+import com.example.carins.model.ClaimAggregate;
+import com.example.carins.model.ClaimAggregate.Scope;
+import com.example.carins.repo.ClaimAggregateRepository;
+import com.example.carins.web.dto.ClaimStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Claim counts and amount totals per car, owner and month in the claim_aggregate table. Claim writers add their
+// deltas in the transaction that stores the claims, so a rollup is read as one primary-key lookup instead of a
+// scan of insuranceclaim. Each writer locks one stripe row of claim_aggregate_lock for its transaction, and a
+// rebuild locks every stripe twice, briefly: to open its snapshots with no writer in flight on any node, and to swap
+// the table in with the deltas committed since. H2 has no shared row locks, hence stripes rather than one row read
+// for share; writers only contend with each other when they draw the same stripe.
+@Component
+public class ClaimAggregates {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClaimAggregates.class);
+
+    private static final String MERGE = """
+            merge into claim_aggregate t
+            using (values (?, ?, ?, ?)) s(scope, scope_key, claim_count, total_amount)
+            on t.scope = s.scope and t.scope_key = s.scope_key
+            when matched then update set claim_count = t.claim_count + s.claim_count,
+                                         total_amount = t.total_amount + s.total_amount
+            when not matched then insert (scope, scope_key, claim_count, total_amount)
+                                  values (s.scope, s.scope_key, s.claim_count, s.total_amount)""";
+
+    // one grouped pass per scope and car-id partition; month keys are yyyyMM
+    private static final Map<Scope, String> REBUILD_QUERIES = Map.of(
+            Scope.CAR, "select car_id, count(*), coalesce(sum(amount), 0) from insuranceclaim " +
+                       "where mod(car_id, ?) = ? group by car_id",
+            Scope.OWNER, "select c.owner_id, count(*), coalesce(sum(cl.amount), 0) from insuranceclaim cl join car c on c.id = cl.car_id " +
+                         "where mod(c.owner_id, ?) = ? group by c.owner_id",
+            Scope.MONTH, "select extract(year from claim_date) * 100 + extract(month from claim_date), count(*), coalesce(sum(amount), 0) " +
+                         "from insuranceclaim where mod(car_id, ?) = ? " +
+                         "group by extract(year from claim_date) * 100 + extract(month from claim_date)");
+
+    static final int LOCK_STRIPES = 16;
+
+    private final JdbcTemplate jdbc;
+    private final ClaimAggregateRepository aggregateRepository;
+    private final TransactionTemplate transactionTemplate;
+    // each rebuild partition reads in its own transaction; repeatable read pins its snapshot at the first statement
+    private final TransactionTemplate snapshotTemplate;
+    private final int rebuildThreads;
+
+    public ClaimAggregates(JdbcTemplate jdbc, ClaimAggregateRepository aggregateRepository,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${carins.claims.aggregate.rebuild-threads:4}") int rebuildThreads) {
+        this.jdbc = jdbc;
+        this.aggregateRepository = aggregateRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.rebuildThreads = rebuildThreads;
+        // the stripe rows are shared by all nodes: whichever starts first inserts them
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            try {
+                jdbc.update("insert into claim_aggregate_lock (stripe, rebuilds) select ?, 0 " +
+                            "where not exists (select 1 from claim_aggregate_lock where stripe = ?)", stripe, stripe);
+            } catch (DuplicateKeyException e) {
+                // another node inserted it meanwhile
+            }
+        }
+    }
+
+    public ClaimStats stats(Scope scope, long key) {
+        return aggregateRepository.findById(new ClaimAggregate.Key(scope, key))
+                .map(a -> new ClaimStats(scope, key, a.getClaimCount(), a.getTotalAmount()))
+                .orElseGet(() -> new ClaimStats(scope, key, 0, BigDecimal.ZERO));
+    }
+
+    // Runs a claim-storing transaction; call record() on the batch inside it
+    public <T> T inTransaction(Supplier<T> work) {
+        return transactionTemplate.execute(status -> {
+            jdbc.queryForObject("select rebuilds from claim_aggregate_lock where stripe = ? for update", Long.class,
+                    ThreadLocalRandom.current().nextInt(LOCK_STRIPES));
+            return work.get();
+        });
+    }
+
+    public Batch batch() {
+        return new Batch();
+    }
+
+    // Recomputes every row from insuranceclaim: scopes and car-id partitions are grouped concurrently, each partition
+    // in a snapshot opened while all stripes are locked, so all of them see the same claims and the table as it was
+    // then. Writers then carry on; the table is replaced with the grouped rows plus whatever writers added to it since,
+    // again under all stripes. A rebuild swapped in by another node meanwhile would make that difference meaningless,
+    // so this one gives up instead.
+    public synchronized int rebuild() {
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(rebuildThreads);
+        CountDownLatch snapshotsOpen = new CountDownLatch(rebuildThreads);
+        try {
+            List<Future<List<Object[]>>> parts = new ArrayList<>();
+            Object[] opened = transactionTemplate.execute(status -> {
+                long generation = lockAllStripes();
+                for (int p = 0; p < rebuildThreads; p++) {
+                    int partition = p;
+                    parts.add(pool.submit(() -> snapshotTemplate.execute(s -> {
+                        jdbc.queryForObject("select count(*) from insuranceclaim where id < 0", Long.class);
+                        snapshotsOpen.countDown();
+                        List<Object[]> rows = new ArrayList<>();
+                        for (Map.Entry<Scope, String> query : REBUILD_QUERIES.entrySet()) {
+                            rows.addAll(jdbc.query(query.getValue(), (rs, rowNum) -> new Object[]{
+                                    query.getKey().name(), rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3)},
+                                    rebuildThreads, partition));
+                        }
+                        return rows;
+                    })));
+                }
+                awaitSnapshots(snapshotsOpen);
+                return new Object[]{generation, currentRows()};
+            });
+            long generation = (Long) opened[0];
+            @SuppressWarnings("unchecked")
+            Map<String, Object[]> before = (Map<String, Object[]>) opened[1];
+
+            // a month spans car partitions, so its partial sums are added up here
+            Map<String, Object[]> rows = new TreeMap<>();
+            for (Future<List<Object[]>> part : parts) {
+                for (Object[] row : part.get()) rows.merge(row[0] + ":" + row[1], row, ClaimAggregates::sum);
+            }
+
+            int[] committedMeanwhile = new int[1];
+            List<Object[]> values = transactionTemplate.execute(status -> {
+                if (lockAllStripes() != generation) {
+                    throw new IllegalStateException("Claim aggregate rebuild abandoned: another rebuild finished meanwhile");
+                }
+                Map<String, Object[]> delta = currentRows();
+                before.forEach((key, row) -> delta.merge(key, negate(row), ClaimAggregates::sum));
+                delta.forEach((key, row) -> {
+                    if ((Long) row[2] != 0 || ((BigDecimal) row[3]).signum() != 0) {
+                        committedMeanwhile[0]++;
+                        rows.merge(key, row, ClaimAggregates::sum);
+                    }
+                });
+                List<Object[]> swapped = rows.values().stream().filter(row -> (Long) row[2] != 0).toList();
+                jdbc.update("delete from claim_aggregate");
+                jdbc.batchUpdate("insert into claim_aggregate (scope, scope_key, claim_count, total_amount) values (?, ?, ?, ?)",
+                        swapped);
+                jdbc.update("update claim_aggregate_lock set rebuilds = rebuilds + 1 where stripe = 0");
+                return swapped;
+            });
+            logger.info("Claim aggregates rebuilt: {} rows ({} from claims committed meanwhile) in {} ms",
+                    values.size(), committedMeanwhile[0], (System.nanoTime() - started) / 1_000_000);
+            return values.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Claim aggregate rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Claim aggregate rebuild failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // in stripe order, as writers only ever hold one; returns the count of rebuilds swapped in so far
+    private long lockAllStripes() {
+        List<Long> rebuilds = jdbc.queryForList("select rebuilds from claim_aggregate_lock order by stripe for update",
+                Long.class);
+        return rebuilds.get(0);
+    }
+
+    private Map<String, Object[]> currentRows() {
+        Map<String, Object[]> rows = new TreeMap<>();
+        jdbc.query("select scope, scope_key, claim_count, total_amount from claim_aggregate", rs -> {
+            rows.put(rs.getString(1) + ":" + rs.getLong(2),
+                    new Object[]{rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getBigDecimal(4)});
+        });
+        return rows;
+    }
+
+    private static void awaitSnapshots(CountDownLatch snapshotsOpen) {
+        try {
+            if (!snapshotsOpen.await(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Claim aggregate rebuild could not open its snapshots");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Claim aggregate rebuild interrupted", e);
+        }
+    }
+
+    private static Object[] sum(Object[] a, Object[] b) {
+        return new Object[]{a[0], a[1], (Long) a[2] + (Long) b[2], ((BigDecimal) a[3]).add((BigDecimal) b[3])};
+    }
+
+    private static Object[] negate(Object[] row) {
+        return new Object[]{row[0], row[1], -(Long) row[2], ((BigDecimal) row[3]).negate()};
+    }
+
+    // claims written before this table existed (seed data, an older schema) are picked up once at startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfMissing() {
+        Boolean missing = jdbc.queryForObject("select not exists(select 1 from claim_aggregate) " +
+                                              "and exists(select 1 from insuranceclaim)", Boolean.class);
+        if (Boolean.TRUE.equals(missing)) rebuild();
+    }
+
+    // Deltas of one transaction, summed per row and applied with one batched MERGE in key order,
+    // so concurrent writers lock shared rows (months, owners) in the same order
+    public final class Batch {
+
+        private final Map<String, Object[]> deltas = new TreeMap<>();
+
+        private Batch() {}
+
+        public void add(long carId, Long ownerId, LocalDate claimDate, BigDecimal amount) {
+            add(Scope.CAR, carId, amount);
+            if (ownerId != null) add(Scope.OWNER, ownerId, amount);
+            add(Scope.MONTH, claimDate.getYear() * 100L + claimDate.getMonthValue(), amount);
+        }
+
+        public void apply() {
+            if (deltas.isEmpty()) return;
+            jdbc.batchUpdate(MERGE, new ArrayList<>(deltas.values()));
+            deltas.clear();
+        }
+
+        private void add(Scope scope, long key, BigDecimal amount) {
+            BigDecimal value = amount == null ? BigDecimal.ZERO : amount;
+            deltas.merge(scope.name() + ":" + key, new Object[]{scope.name(), key, 1L, value}, ClaimAggregates::sum);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.carins.service;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.InsuranceClaim;
+import com.example.carins.model.OutboxEvent;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsuranceClaimRepository;
+import com.example.carins.web.dto.BulkClaimResult;
+import com.example.carins.web.dto.InsuranceClaimDto;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Inserts claims a chunk at a time: one set query for the referenced cars and one batched insert per chunk.
+// Every path that stores claims goes through here so the claim aggregates and the outbox are updated in the same
+// transaction.
+@Service
+public class ClaimIngestionService {
+
+    private final CarRepository carRepository;
+    private final InsuranceClaimRepository claimRepository;
+    private final EntityManager entityManager;
+    private final ClaimAggregates aggregates;
+    private final Outbox outbox;
+    private final Validator validator;
+
+    public ClaimIngestionService(CarRepository carRepository, InsuranceClaimRepository claimRepository,
+                                 EntityManager entityManager, ClaimAggregates aggregates, Outbox outbox,
+                                 Validator validator) {
+        this.carRepository = carRepository;
+        this.claimRepository = claimRepository;
+        this.entityManager = entityManager;
+        this.aggregates = aggregates;
+        this.outbox = outbox;
+        this.validator = validator;
+    }
+
+    // A single claim for a car already loaded by the caller
+    public InsuranceClaim register(Car car, InsuranceClaimDto dto) {
+        return aggregates.inTransaction(() -> {
+            InsuranceClaim saved = claimRepository.save(
+                    new InsuranceClaim(car, dto.claimDate(), dto.description(), dto.amount()));
+            ClaimAggregates.Batch deltas = aggregates.batch();
+            deltas.add(car.getId(), car.getOwner() != null ? car.getOwner().getId() : null, dto.claimDate(), dto.amount());
+            deltas.apply();
+            outbox.append(OutboxEvent.Type.CLAIM_CREATED, saved.getId(), InsuranceClaimDto.fromEntity(saved));
+            return saved;
+        });
+    }
+
+    // firstIndex is the stream position of chunk.get(0); results come back in chunk order
+    public List<BulkClaimResult> ingestChunk(long firstIndex, List<InsuranceClaimDto> chunk) {
+        return ingestChunk(firstIndex, chunk, null);
+    }
+
+    // trackingIds, when given, are stored with the claims; ones already in the database are reported as created
+    public List<BulkClaimResult> ingestChunk(long firstIndex, List<InsuranceClaimDto> chunk, List<String> trackingIds) {
+        BulkClaimResult[] results = new BulkClaimResult[chunk.size()];
+        if (trackingIds != null) {
+            Map<String, Long> stored = new HashMap<>();
+            for (Object[] row : claimRepository.findIdsByTrackingIdIn(trackingIds)) {
+                stored.put((String) row[0], (Long) row[1]);
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                Long id = stored.get(trackingIds.get(i));
+                if (id != null) results[i] = BulkClaimResult.created(firstIndex + i, chunk.get(i).carId(), id);
+            }
+        }
+        Set<Long> carIds = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] != null) continue;
+            InsuranceClaimDto dto = chunk.get(i);
+            Set<ConstraintViolation<InsuranceClaimDto>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                results[i] = BulkClaimResult.rejected(firstIndex + i, dto.carId(), describe(violations));
+            } else {
+                carIds.add(dto.carId());
+            }
+        }
+        Map<Long, Long> ownerByCar = new HashMap<>();
+        if (!carIds.isEmpty()) {
+            for (Object[] row : carRepository.findOwnerIdsByIdIn(carIds)) {
+                ownerByCar.put((Long) row[0], (Long) row[1]);
+            }
+        }
+
+        List<Integer> positions = new ArrayList<>();
+        List<InsuranceClaim> claims = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] != null) continue;
+            InsuranceClaimDto dto = chunk.get(i);
+            if (!ownerByCar.containsKey(dto.carId())) {
+                results[i] = BulkClaimResult.rejected(firstIndex + i, dto.carId(), "Car with ID " + dto.carId() + " not found");
+                continue;
+            }
+            positions.add(i);
+            InsuranceClaim claim = new InsuranceClaim(carRepository.getReferenceById(dto.carId()),
+                    dto.claimDate(), dto.description(), dto.amount());
+            if (trackingIds != null) claim.setTrackingId(trackingIds.get(i));
+            claims.add(claim);
+        }
+
+        if (!claims.isEmpty()) {
+            List<InsuranceClaim> saved = aggregates.inTransaction(() -> {
+                List<InsuranceClaim> inserted = claimRepository.saveAll(claims);
+                ClaimAggregates.Batch deltas = aggregates.batch();
+                for (int k = 0; k < claims.size(); k++) {
+                    InsuranceClaimDto dto = chunk.get(positions.get(k));
+                    deltas.add(dto.carId(), ownerByCar.get(dto.carId()), dto.claimDate(), dto.amount());
+                }
+                deltas.apply();
+                for (InsuranceClaim claim : inserted) {
+                    outbox.append(OutboxEvent.Type.CLAIM_CREATED, claim.getId(), InsuranceClaimDto.fromEntity(claim));
+                }
+                // push the batch out and detach it so the persistence context does not grow across chunks
+                entityManager.flush();
+                entityManager.clear();
+                return inserted;
+            });
+            for (int k = 0; k < positions.size(); k++) {
+                int i = positions.get(k);
+                results[i] = BulkClaimResult.created(firstIndex + i, chunk.get(i).carId(), saved.get(k).getId());
+            }
+        }
+        return List.of(results);
+    }
+
+    private static String describe(Set<ConstraintViolation<InsuranceClaimDto>> violations) {
+        return violations.stream()
+                .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .collect(Collectors.joining("; "));
+    }
+}
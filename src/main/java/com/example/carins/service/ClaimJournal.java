@@ -0,0 +1,136 @@
+package com.example.carins.service;
+
+import com.example.carins.web.dto.InsuranceClaimDto;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Append-only NDJSON log of accepted claims and their acknowledgements; claims without an ACK are replayed on startup
+public class ClaimJournal implements Closeable {
+
+    private final Path path;
+    private final ObjectMapper mapper;
+    private final boolean fsync;
+    private FileChannel channel;
+
+    public ClaimJournal(Path path, ObjectMapper mapper, boolean fsync) throws IOException {
+        this.path = path;
+        this.mapper = mapper;
+        this.fsync = fsync;
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        this.channel = open();
+    }
+
+    public synchronized void append(Entry entry) throws IOException {
+        appendAll(List.of(entry));
+    }
+
+    public synchronized void appendAll(List<Entry> entries) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries) {
+            lines.append(mapper.writeValueAsString(entry)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) channel.force(false);
+    }
+
+    // Claims that were appended but never acknowledged, in append order
+    public synchronized List<Entry> pending() throws IOException {
+        Map<String, Entry> pending = new LinkedHashMap<>();
+        for (Entry entry : entries()) {
+            if (Entry.CLAIM.equals(entry.type())) pending.put(entry.trackingId(), entry);
+            else pending.remove(entry.trackingId());
+        }
+        return new ArrayList<>(pending.values());
+    }
+
+    // Every readable entry, in append order
+    public synchronized List<Entry> entries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    entries.add(mapper.readValue(line, Entry.class));
+                } catch (JsonProcessingException e) {
+                    // torn write at the end of the file after a crash
+                }
+            }
+        }
+        return entries;
+    }
+
+    public synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    // Drops everything; only safe once every appended claim has been acknowledged
+    public synchronized void truncate() throws IOException {
+        channel.truncate(0);
+        if (fsync) channel.force(true);
+    }
+
+    // Rewrites the journal with just the given entries, replacing the file atomically
+    public synchronized void rewrite(List<Entry> entries) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Entry entry : entries) {
+                out.write(ByteBuffer.wrap((mapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8)));
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Entry(String type, String trackingId, InsuranceClaimDto claim, Long claimId, String error) {
+
+        static final String CLAIM = "CLAIM";
+        static final String ACK = "ACK";
+        static final String FAILED = "FAILED";
+
+        public static Entry claim(String trackingId, InsuranceClaimDto claim) {
+            return new Entry(CLAIM, trackingId, claim, null, null);
+        }
+
+        public static Entry ack(String trackingId, Long claimId, String error) {
+            return new Entry(ACK, trackingId, null, claimId, error);
+        }
+
+        // a claim that will not be stored, kept with the reason in the failed-claims log
+        public static Entry failed(String trackingId, InsuranceClaimDto claim, String error) {
+            return new Entry(FAILED, trackingId, claim, null, error);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.InsuranceClaimRepository;
+import com.example.carins.web.dto.BulkClaimResult;
+import com.example.carins.web.dto.ClaimTrackingStatus;
+import com.example.carins.web.dto.InsuranceClaimDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Accepts claims into a bounded queue backed by a ClaimJournal and stores them in batches on a background thread.
+// A claim is journaled before it is acknowledged to the caller, and acknowledged in the journal once it is stored.
+// A batch that keeps failing is retried max-attempts times, then claim by claim with the same cap; a claim that
+// still cannot be stored is moved to the failed-claims log with the reason instead of blocking the queue. That
+// log also keeps every FAILED status, so those stay queryable after the recent-status cache forgets them or the
+// application restarts.
+@Component
+public class ClaimWriteBehindQueue implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClaimWriteBehindQueue.class);
+
+    private final ClaimIngestionService ingestionService;
+    private final InsuranceClaimRepository claimRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path journalPath;
+    private final Path failedPath;
+    private final boolean fsync;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration shutdownTimeout;
+    private final BlockingQueue<ClaimJournal.Entry> queue;
+    // entries replayed from the journal on startup, stored before anything new; may exceed the queue capacity
+    private final Deque<ClaimJournal.Entry> replayed = new ArrayDeque<>();
+    private final Map<String, ClaimTrackingStatus> statuses;
+    // never evicted: unlike a created claim, a failed one cannot be looked up in the database
+    private final Map<String, ClaimTrackingStatus> failed = new ConcurrentHashMap<>();
+    private final Object submitLock = new Object();
+
+    private ClaimJournal journal;
+    private ClaimJournal failedLog;
+    private Thread drainer;
+    private volatile boolean running;
+
+    public ClaimWriteBehindQueue(ClaimIngestionService ingestionService, InsuranceClaimRepository claimRepository,
+                                 ObjectMapper objectMapper,
+                                 @Value("${carins.claims.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${carins.claims.write-behind.journal:data/claims-journal.ndjson}") Path journalPath,
+                                 @Value("${carins.claims.write-behind.fsync:true}") boolean fsync,
+                                 @Value("${carins.claims.write-behind.capacity:10000}") int capacity,
+                                 @Value("${carins.claims.write-behind.failed-log:data/claims-failed.ndjson}") Path failedPath,
+                                 @Value("${carins.claims.write-behind.batch-size:500}") int batchSize,
+                                 @Value("${carins.claims.write-behind.max-attempts:5}") int maxAttempts,
+                                 @Value("${carins.claims.write-behind.retry-delay:PT1S}") Duration retryDelay,
+                                 @Value("${carins.claims.write-behind.shutdown-timeout:PT10S}") Duration shutdownTimeout,
+                                 @Value("${carins.claims.write-behind.tracked-statuses:100000}") int trackedStatuses) {
+        this.ingestionService = ingestionService;
+        this.claimRepository = claimRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.journalPath = journalPath;
+        this.failedPath = failedPath;
+        this.fsync = fsync;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        // most recent pending and created outcomes only; older tracking ids fall back to the database
+        this.statuses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ClaimTrackingStatus> eldest) {
+                return size() > trackedStatuses;
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Journals and enqueues the claim; empty when the queue is full and the caller should back off
+    public Optional<String> submit(InsuranceClaimDto claim) throws IOException {
+        if (!running) throw new IllegalStateException("Claim write-behind queue is not running");
+        synchronized (submitLock) {
+            if (queue.remainingCapacity() == 0) return Optional.empty();
+            String trackingId = UUID.randomUUID().toString();
+            ClaimJournal.Entry entry = ClaimJournal.Entry.claim(trackingId, claim);
+            journal.append(entry);
+            statuses.put(trackingId, ClaimTrackingStatus.pending(trackingId));
+            queue.add(entry);
+            return Optional.of(trackingId);
+        }
+    }
+
+    public Optional<ClaimTrackingStatus> status(String trackingId) {
+        ClaimTrackingStatus status = failed.get(trackingId);
+        if (status == null) status = statuses.get(trackingId);
+        if (status != null) return Optional.of(status);
+        return claimRepository.findIdByTrackingId(trackingId)
+                .map(id -> ClaimTrackingStatus.created(trackingId, id));
+    }
+
+    public int queued() {
+        return queue.size() + replayed.size();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) return;
+        try {
+            failedLog = new ClaimJournal(failedPath, objectMapper, fsync);
+            for (ClaimJournal.Entry entry : failedLog.entries()) {
+                failed.put(entry.trackingId(), ClaimTrackingStatus.failed(entry.trackingId(), entry.error()));
+            }
+            journal = new ClaimJournal(journalPath, objectMapper, fsync);
+            List<ClaimJournal.Entry> pending = journal.pending();
+            // keep only the unacknowledged claims so the journal does not grow across restarts
+            journal.rewrite(pending);
+            for (ClaimJournal.Entry entry : pending) {
+                statuses.put(entry.trackingId(), ClaimTrackingStatus.pending(entry.trackingId()));
+            }
+            replayed.addAll(pending);
+            if (!pending.isEmpty()) {
+                logger.info("Replaying {} unacknowledged claims from {}", pending.size(), journalPath);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open claim journal " + journalPath, e);
+        }
+        running = true;
+        drainer = new Thread(this::drain, "claim-write-behind");
+        drainer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) return;
+        running = false;
+        try {
+            // the drainer stores what is already queued before exiting; anything left is replayed on restart
+            drainer.join(shutdownTimeout.toMillis());
+            if (drainer.isAlive()) {
+                drainer.interrupt();
+                drainer.join(shutdownTimeout.toMillis());
+            }
+            journal.close();
+            failedLog.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("Error closing claim journal", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        List<ClaimJournal.Entry> batch = new ArrayList<>(batchSize);
+        int attempts = 0;
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty() && !nextBatch(batch)) {
+                    truncateIfIdle();
+                    continue;
+                }
+                if (attempts < maxAttempts) {
+                    store(batch);
+                } else {
+                    storeOneByOne(batch);
+                }
+                batch.clear();
+                attempts = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // the batch stays journaled; a stop during the retry leaves it for replay
+                attempts++;
+                logger.warn("Storing {} queued claims failed (attempt {} of {}), retrying in {}",
+                        batch.size(), attempts, maxAttempts, retryDelay, e);
+                try {
+                    Thread.sleep(retryDelay.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Isolates the claims that fail a batch: each gets max-attempts of its own before it is moved to the failed log
+    private void storeOneByOne(List<ClaimJournal.Entry> batch) throws IOException, InterruptedException {
+        for (ClaimJournal.Entry entry : batch) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    store(List.of(entry));
+                    break;
+                } catch (RuntimeException e) {
+                    if (attempt >= maxAttempts) {
+                        String error = "not stored: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                        logger.error("Claim {} not stored after {} attempts, moved to {}",
+                                entry.trackingId(), attempt, failedPath, e);
+                        fail(entry, error);
+                        journal.append(ClaimJournal.Entry.ack(entry.trackingId(), null, error));
+                        break;
+                    }
+                    Thread.sleep(retryDelay.toMillis());
+                }
+            }
+        }
+    }
+
+    private boolean nextBatch(List<ClaimJournal.Entry> batch) throws InterruptedException {
+        while (!replayed.isEmpty() && batch.size() < batchSize) {
+            batch.add(replayed.poll());
+        }
+        if (!batch.isEmpty()) return true;
+        ClaimJournal.Entry first = queue.poll(200, TimeUnit.MILLISECONDS);
+        if (first == null) return false;
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        return true;
+    }
+
+    private void store(List<ClaimJournal.Entry> batch) throws IOException {
+        List<InsuranceClaimDto> claims = new ArrayList<>(batch.size());
+        List<String> trackingIds = new ArrayList<>(batch.size());
+        for (ClaimJournal.Entry entry : batch) {
+            claims.add(entry.claim());
+            trackingIds.add(entry.trackingId());
+        }
+        List<BulkClaimResult> results = ingestionService.ingestChunk(0, claims, trackingIds);
+
+        List<ClaimJournal.Entry> acks = new ArrayList<>(batch.size());
+        for (int i = 0; i < results.size(); i++) {
+            BulkClaimResult result = results.get(i);
+            String trackingId = trackingIds.get(i);
+            acks.add(ClaimJournal.Entry.ack(trackingId, result.id(), result.error()));
+            if (result.error() == null) {
+                statuses.put(trackingId, ClaimTrackingStatus.created(trackingId, result.id()));
+            } else {
+                fail(batch.get(i), result.error());
+            }
+        }
+        journal.appendAll(acks);
+    }
+
+    // logged before the journal ACK, so a crash in between replays the claim rather than losing its status
+    private void fail(ClaimJournal.Entry entry, String error) throws IOException {
+        failedLog.append(ClaimJournal.Entry.failed(entry.trackingId(), entry.claim(), error));
+        failed.put(entry.trackingId(), ClaimTrackingStatus.failed(entry.trackingId(), error));
+        statuses.remove(entry.trackingId());
+    }
+
+    // Once everything appended has been acknowledged the journal carries no information
+    private void truncateIfIdle() {
+        synchronized (submitLock) {
+            try {
+                if (queue.isEmpty() && replayed.isEmpty() && journal.size() > 0) journal.truncate();
+            } catch (IOException e) {
+                logger.warn("Cannot truncate claim journal {}", journalPath, e);
+            }
+        }
+    }
+}
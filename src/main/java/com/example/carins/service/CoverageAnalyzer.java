@@ -0,0 +1,142 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.PolicyScanRepository;
+import com.example.carins.repo.projection.PolicyPeriod;
+import com.example.carins.repo.projection.PolicySpan;
+import com.example.carins.web.dto.CoverageGap;
+import com.example.carins.web.dto.CoverageReport;
+import com.example.carins.web.dto.CoverageSpan;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Which cars were uninsured, when and for how long, from sweeps over policy intervals sorted by start date
+@Service
+public class CoverageAnalyzer {
+
+    private final CarRepository carRepository;
+    private final InsurancePolicyRepository policyRepository;
+    private final PolicyScanRepository scanRepository;
+    private final int pageSize;
+
+    public CoverageAnalyzer(CarRepository carRepository, InsurancePolicyRepository policyRepository,
+                            PolicyScanRepository scanRepository,
+                            @Value("${carins.coverage.page-size:1000}") int pageSize) {
+        this.carRepository = carRepository;
+        this.policyRepository = policyRepository;
+        this.scanRepository = scanRepository;
+        this.pageSize = pageSize;
+    }
+
+    public CoverageReport report(Long carId, LocalDate from, LocalDate to) {
+        if (!carRepository.cachedExistsById(carId)) {
+            throw new EntityNotFoundException("Car " + carId + " not found");
+        }
+        List<PolicyPeriod> periods = new ArrayList<>(policyRepository.findPeriodsByCarId(carId));
+        periods.removeIf(p -> p.startDate() == null); // a policy without start date is never active
+        periods.sort(Comparator.comparing(PolicyPeriod::startDate));
+
+        List<CoverageSpan> coverage = new ArrayList<>();
+        List<CoverageSpan> gaps = new ArrayList<>();
+        CoverageSweep sweep = new CoverageSweep(from.toEpochDay(), to.toEpochDay(), new CoverageSweep.Listener() {
+            @Override
+            public void covered(long start, long end) {
+                coverage.add(CoverageSpan.ofEpochDays(start, end));
+            }
+
+            @Override
+            public void gap(long start, long end) {
+                gaps.add(CoverageSpan.ofEpochDays(start, end));
+            }
+        });
+        for (PolicyPeriod p : periods) {
+            sweep.add(p.startDate().toEpochDay(), endDay(p.endDate()));
+        }
+        sweep.finish();
+
+        long coveredDays = coverage.stream().mapToLong(CoverageSpan::days).sum();
+        long totalDays = to.toEpochDay() - from.toEpochDay() + 1;
+        return new CoverageReport(carId, from, to, coveredDays, totalDays - coveredDays, coverage, gaps);
+    }
+
+    // Every gap of every car in [from, to], in car id order. Cars are merge-joined with a keyset scan of
+    // insurancepolicy ordered by (car_id, start_date, id), so memory holds one page of each whatever the fleet size.
+    public void scanGaps(LocalDate from, LocalDate to, Consumer<CoverageGap> action) {
+        PolicyCursor policies = new PolicyCursor(from, to);
+        long afterCarId = 0;
+        List<Long> carIds;
+        do {
+            carIds = carRepository.findIdsAfter(afterCarId, Limit.of(pageSize));
+            for (Long carId : carIds) {
+                CoverageSweep sweep = new CoverageSweep(from.toEpochDay(), to.toEpochDay(), new CoverageSweep.Listener() {
+                    @Override
+                    public void covered(long start, long end) {
+                    }
+
+                    @Override
+                    public void gap(long start, long end) {
+                        action.accept(new CoverageGap(carId, LocalDate.ofEpochDay(start), LocalDate.ofEpochDay(end),
+                                end - start + 1));
+                    }
+                });
+                for (PolicySpan p = policies.nextFor(carId); p != null; p = policies.nextFor(carId)) {
+                    sweep.add(p.startDate().toEpochDay(), endDay(p.endDate()));
+                }
+                sweep.finish();
+            }
+            if (!carIds.isEmpty()) afterCarId = carIds.get(carIds.size() - 1);
+        } while (carIds.size() == pageSize);
+    }
+
+    private static long endDay(LocalDate endDate) {
+        return endDate == null ? Long.MAX_VALUE : endDate.toEpochDay();
+    }
+
+    // Forward-only reader over the keyset pages of policies active in the range
+    private final class PolicyCursor {
+
+        private final LocalDate from;
+        private final LocalDate to;
+        private List<PolicySpan> page = List.of();
+        private int position;
+        private boolean exhausted;
+
+        private PolicyCursor(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        // next policy of the car, or null once the cursor has moved past it
+        PolicySpan nextFor(Long carId) {
+            PolicySpan next = peek();
+            while (next != null && next.carId() < carId) {
+                position++; // policy of a car deleted since the car page was read
+                next = peek();
+            }
+            if (next == null || next.carId() > carId) return null;
+            position++;
+            return next;
+        }
+
+        private PolicySpan peek() {
+            if (position < page.size()) return page.get(position);
+            if (exhausted) return null;
+            PolicySpan last = page.isEmpty() ? null : page.get(page.size() - 1);
+            page = last == null
+                    ? scanRepository.findActivePage(from, to, 0, LocalDate.EPOCH, 0, pageSize)
+                    : scanRepository.findActivePage(from, to, last.carId(), last.startDate(), last.id(), pageSize);
+            position = 0;
+            exhausted = page.size() < pageSize;
+            return page.isEmpty() ? null : page.get(0);
+        }
+    }
+}
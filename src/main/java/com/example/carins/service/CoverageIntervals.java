@@ -0,0 +1,69 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.projection.PolicyPeriod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Disjoint, sorted coverage ranges of one car as inclusive epoch-day pairs.
+// Overlapping and adjacent policies are merged, so a lookup is a single binary search.
+public final class CoverageIntervals {
+
+    static final int OPEN_END = Integer.MAX_VALUE;
+
+    private static final CoverageIntervals EMPTY = new CoverageIntervals(new int[0], new int[0]);
+
+    private final int[] starts;
+    private final int[] ends;
+
+    private CoverageIntervals(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    public static CoverageIntervals of(List<PolicyPeriod> periods) {
+        List<PolicyPeriod> sorted = new ArrayList<>(periods.size());
+        for (PolicyPeriod p : periods) {
+            if (p.startDate() != null) sorted.add(p); // a policy without start date is never active
+        }
+        if (sorted.isEmpty()) return EMPTY;
+        sorted.sort(Comparator.comparing(PolicyPeriod::startDate));
+
+        int[] starts = new int[sorted.size()];
+        int[] ends = new int[sorted.size()];
+        int n = 0;
+        for (PolicyPeriod p : sorted) {
+            int start = (int) p.startDate().toEpochDay();
+            int end = p.endDate() == null ? OPEN_END : (int) p.endDate().toEpochDay();
+            if (n > 0 && (long) start <= (long) ends[n - 1] + 1) {
+                ends[n - 1] = Math.max(ends[n - 1], end);
+            } else {
+                starts[n] = start;
+                ends[n] = end;
+                n++;
+            }
+        }
+        if (n == starts.length) return new CoverageIntervals(starts, ends);
+        return new CoverageIntervals(Arrays.copyOf(starts, n), Arrays.copyOf(ends, n));
+    }
+
+    public boolean covers(long epochDay) {
+        int lo = 0, hi = starts.length - 1, candidate = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= epochDay) {
+                candidate = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return candidate >= 0 && ends[candidate] >= epochDay;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.carins.service;
+
+// Merges one car's policy intervals, fed in start order, into covered spans and the gaps between them,
+// clipped to [from, to]. Days are inclusive epoch days; a policy without end date is passed as Long.MAX_VALUE.
+final class CoverageSweep {
+
+    interface Listener {
+        void covered(long start, long end);
+
+        void gap(long start, long end);
+    }
+
+    private final long from;
+    private final long to;
+    private final Listener listener;
+    // first day not yet reported as covered or uncovered
+    private long cursor;
+    private long spanStart;
+    private long spanEnd;
+    private boolean open;
+
+    CoverageSweep(long from, long to, Listener listener) {
+        this.from = from;
+        this.to = to;
+        this.listener = listener;
+        this.cursor = from;
+    }
+
+    void add(long start, long end) {
+        if (end < from || start > to) return;
+        start = Math.max(start, from);
+        end = Math.min(end, to);
+        if (open && start <= spanEnd + 1) {
+            spanEnd = Math.max(spanEnd, end);
+            return;
+        }
+        closeSpan();
+        if (start > cursor) listener.gap(cursor, start - 1);
+        spanStart = start;
+        spanEnd = end;
+        open = true;
+    }
+
+    void finish() {
+        closeSpan();
+        if (cursor <= to) listener.gap(cursor, to);
+        cursor = to + 1;
+    }
+
+    private void closeSpan() {
+        if (!open) return;
+        listener.covered(spanStart, spanEnd);
+        cursor = spanEnd + 1;
+        open = false;
+    }
+}
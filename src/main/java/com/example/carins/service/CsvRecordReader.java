@@ -0,0 +1,87 @@
+package com.example.carins.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming RFC 4180 reader: quoted fields may hold commas, doubled quotes and line breaks; CRLF or LF ends a
+// record and blank lines are skipped. Only the record being read is held in memory.
+class CsvRecordReader {
+
+    private final Reader in;
+    private int line = 1;
+    private int recordLine;
+    private int pushedBack = -2;
+
+    CsvRecordReader(Reader in) {
+        this.in = in;
+    }
+
+    // physical line the last record returned by next() started on
+    int recordLine() {
+        return recordLine;
+    }
+
+    // fields of the next record, or null at the end of the input
+    List<String> next() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            if (c == '\n') line++;
+            c = read();
+        }
+        if (c == -1) return null;
+        recordLine = line;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) throw new IOException("Unterminated quoted field in record starting on line " + recordLine);
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') unread(following);
+                }
+                if (c != -1) line++;
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.carins.service;
+
+import com.example.carins.model.ExpiryPartitionLease;
+import com.example.carins.repo.ExpiryPartitionLeaseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.OptionalInt;
+
+// Hands out expiry partitions through the shared lease table so that nodes split a sweep instead of repeating it
+@Component
+public class ExpiryPartitionLeases {
+
+    private final ExpiryPartitionLeaseRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final int partitions;
+    private final Duration leaseTtl;
+
+    public ExpiryPartitionLeases(ExpiryPartitionLeaseRepository leaseRepository, TransactionTemplate transactionTemplate,
+                                 @Value("${carins.node-id:${random.uuid}}") String nodeId,
+                                 @Value("${carins.expiry.partitions:16}") int partitions,
+                                 @Value("${carins.expiry.lease-ttl:PT10M}") Duration leaseTtl) {
+        this.leaseRepository = leaseRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.nodeId = nodeId;
+        this.partitions = partitions;
+        this.leaseTtl = leaseTtl;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public int partitions() {
+        return partitions;
+    }
+
+    // Creates missing lease rows; several nodes may race here, a duplicate insert just means another node won
+    public void ensurePartitions() {
+        if (leaseRepository.count() >= partitions) return;
+        for (int p = 0; p < partitions; p++) {
+            int partition = p;
+            if (leaseRepository.existsById(partition)) continue;
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        leaseRepository.saveAndFlush(new ExpiryPartitionLease(partition, Instant.EPOCH)));
+            } catch (DataIntegrityViolationException ignored) {
+                // created concurrently by another node
+            }
+        }
+    }
+
+    // Claims a partition that is neither leased nor already finished since runStartedAt
+    public OptionalInt claim(Instant runStartedAt) {
+        Integer claimed = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<Integer> free = leaseRepository.lockClaimable(partitions, now, runStartedAt);
+            if (free.isEmpty()) return null;
+            leaseRepository.claim(free.get(0), nodeId, now.plus(leaseTtl));
+            return free.get(0);
+        });
+        return claimed == null ? OptionalInt.empty() : OptionalInt.of(claimed);
+    }
+
+    // false when the lease expired and was taken over by another node
+    public boolean renew(int partition) {
+        Integer updated = transactionTemplate.execute(status ->
+                leaseRepository.renew(partition, nodeId, Instant.now().plus(leaseTtl)));
+        return updated != null && updated > 0;
+    }
+
+    public void release(int partition) {
+        transactionTemplate.executeWithoutResult(status -> leaseRepository.release(partition, nodeId, Instant.now()));
+    }
+
+    public void abandon(int partition) {
+        transactionTemplate.executeWithoutResult(status -> leaseRepository.abandon(partition, nodeId, Instant.now()));
+    }
+}
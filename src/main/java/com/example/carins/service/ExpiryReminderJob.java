@@ -0,0 +1,108 @@
+package com.example.carins.service;
+
+import com.example.carins.notify.ExpiryNotification;
+import com.example.carins.notify.NoticeBatches;
+import com.example.carins.notify.NotificationDispatcher;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.PolicyNoticeRow;
+import com.example.carins.web.dto.ExpiringPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Once a day, reminds owners of their policies ending within 30, 14 and 7 days (carins.expiry.reminders.days):
+// candidates come from PolicyExpiryWheel, and each policy's reminder_stage records the shortest lead time it has
+// been reminded of, so every policy gets one reminder per lead time however often the job runs or how many days
+// it missed. Lead times are worked shortest first, so a policy first seen 5 days out is reminded once, at 7 days.
+// Each owner gets one message per lead time, composed through NoticeBatches and marked in the transaction that
+// confirms the batch. A second node running the same lead time at the same moment fails to store the batch and
+// leaves it to the first.
+@Component
+public class ExpiryReminderJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryReminderJob.class);
+
+    private final PolicyExpiryWheel expiryWheel;
+    private final InsurancePolicyRepository policyRepository;
+    private final NotificationDispatcher dispatcher;
+    private final NoticeBatches noticeBatches;
+    private final TransactionTemplate transactionTemplate;
+    private final int[] leadDays;
+    private final int chunkSize;
+    private final Counter remindedCounter;
+
+    public ExpiryReminderJob(PolicyExpiryWheel expiryWheel, InsurancePolicyRepository policyRepository,
+                             NotificationDispatcher dispatcher, NoticeBatches noticeBatches,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${carins.expiry.reminders.days:30,14,7}") int[] leadDays,
+                             @Value("${carins.expiry.chunk-size:500}") int chunkSize,
+                             MeterRegistry meterRegistry) {
+        this.expiryWheel = expiryWheel;
+        this.policyRepository = policyRepository;
+        this.dispatcher = dispatcher;
+        this.noticeBatches = noticeBatches;
+        this.transactionTemplate = transactionTemplate;
+        this.leadDays = Arrays.stream(leadDays).sorted().toArray();
+        this.chunkSize = chunkSize;
+        this.remindedCounter = Counter.builder("carins.expiry.policies.reminded").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${carins.expiry.reminders.cron:0 0 8 * * ?}") // every morning at 8
+    public void sendReminders() {
+        try {
+            ExpiryReminderResult result = remind(LocalDate.now());
+            logger.info("Expiry reminders sent {} notifications for {} policies in {} ms ({} notifications/s)",
+                    result.notifications(), result.policies(), result.elapsedMillis(),
+                    String.format("%.1f", result.notificationsPerSecond()));
+        } catch (Exception e) {
+            logger.error("Error sending expiry reminders", e);
+        }
+    }
+
+    public ExpiryReminderResult remind(LocalDate today) throws InterruptedException {
+        long started = System.nanoTime();
+        long policies = 0, notifications = 0;
+        for (int days : leadDays) {
+            List<Long> ids = expiryWheel.expiringWithin(today, days).stream().map(ExpiringPolicy::policyId).toList();
+            // all due rows first, so an owner whose policies span id chunks still gets one reminder
+            List<PolicyNoticeRow> rows = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i += chunkSize) {
+                rows.addAll(policyRepository.findNoticeRowsDueForReminder(
+                        ids.subList(i, Math.min(i + chunkSize, ids.size())), days));
+            }
+            if (rows.isEmpty()) continue;
+            String kind = ExpiryNotification.reminderKind(days);
+            List<ExpiryNotification> composed;
+            try {
+                composed = noticeBatches.compose(kind, rows, owned -> ExpiryNotification.reminder(days, owned));
+            } catch (DataIntegrityViolationException e) {
+                logger.warn("{}-day reminders are being sent by another run, skipping them", days);
+                continue;
+            }
+            List<ExpiryNotification> delivered = dispatcher.dispatch(composed);
+            List<Long> remindedIds = delivered.stream().flatMap(n -> n.policyIds().stream()).toList();
+            for (int i = 0; i < remindedIds.size(); i += chunkSize) {
+                List<Long> chunk = remindedIds.subList(i, Math.min(i + chunkSize, remindedIds.size()));
+                transactionTemplate.executeWithoutResult(status -> {
+                    noticeBatches.confirm(kind, chunk);
+                    policyRepository.markReminded(chunk, days);
+                });
+            }
+            remindedCounter.increment(remindedIds.size());
+            policies += remindedIds.size();
+            notifications += delivered.size();
+        }
+        return new ExpiryReminderResult(policies, notifications, (System.nanoTime() - started) / 1_000_000);
+    }
+}
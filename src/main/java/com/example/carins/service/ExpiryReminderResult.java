@@ -0,0 +1,8 @@
+package com.example.carins.service;
+
+public record ExpiryReminderResult(long policies, long notifications, long elapsedMillis) {
+
+    public double notificationsPerSecond() {
+        return elapsedMillis == 0 ? notifications * 1000.0 : notifications * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.carins.service;
+
+public record ExpirySweepResult(long policies, long notifications, int chunks, int partitions, long elapsedMillis) {
+
+    public double policiesPerSecond() {
+        return elapsedMillis == 0 ? policies * 1000.0 : policies * 1000.0 / elapsedMillis;
+    }
+
+    public double notificationsPerSecond() {
+        return elapsedMillis == 0 ? notifications * 1000.0 : notifications * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.carins.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Header of a fleet import file: any column order, names as in the export (snake_case, case-insensitive).
+// The policy columns may be left out entirely for a cars-only import.
+class FleetImportColumns {
+
+    enum Column {
+        OWNER_NAME, OWNER_EMAIL, VIN, MAKE, MODEL, YEAR_OF_MANUFACTURE, PROVIDER(false), START_DATE(false), END_DATE(false);
+
+        final boolean required;
+
+        Column() {
+            this(true);
+        }
+
+        Column(boolean required) {
+            this.required = required;
+        }
+
+        String header() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final int[] positions = new int[Column.values().length];
+    private final int width;
+
+    private FleetImportColumns(List<String> header) {
+        Arrays.fill(positions, -1);
+        width = header.size();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            for (Column column : Column.values()) {
+                if (column.header().equals(name)) positions[column.ordinal()] = i;
+            }
+        }
+    }
+
+    static FleetImportColumns resolve(List<String> header) {
+        if (header == null) throw new IllegalArgumentException("Upload is empty, expected a header row");
+        FleetImportColumns columns = new FleetImportColumns(header);
+        List<String> missing = new ArrayList<>();
+        for (Column column : Column.values()) {
+            if (column.required && columns.positions[column.ordinal()] < 0) missing.add(column.header());
+        }
+        if (!missing.isEmpty()) throw new IllegalArgumentException("Missing columns: " + String.join(", ", missing));
+        return columns;
+    }
+
+    int width() {
+        return width;
+    }
+
+    // trimmed value, or null when the column is absent or the field blank
+    String get(List<String> fields, Column column) {
+        int position = positions[column.ordinal()];
+        if (position < 0) return null;
+        String value = fields.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+}
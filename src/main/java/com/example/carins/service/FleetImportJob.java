@@ -0,0 +1,78 @@
+package com.example.carins.service;
+
+import com.example.carins.web.dto.ImportProgress;
+import com.example.carins.web.dto.ImportProgress.Status;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progress of one import, updated by the job thread and read by status requests
+class FleetImportJob {
+
+    final String id;
+    final Path upload;
+    final Path rejectFile;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long startedNanos;
+    private volatile long elapsedNanos;
+    private volatile String error;
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsImported = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicLong ownersCreated = new AtomicLong();
+    private final AtomicLong carsCreated = new AtomicLong();
+    private final AtomicLong policiesCreated = new AtomicLong();
+
+    FleetImportJob(String id, Path upload, Path rejectFile) {
+        this.id = id;
+        this.upload = upload;
+        this.rejectFile = rejectFile;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        startedNanos = System.nanoTime();
+        status = Status.RUNNING;
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void chunkWritten(long imported, long rejected, long owners, long cars, long policies) {
+        rowsImported.addAndGet(imported);
+        rowsRejected.addAndGet(rejected);
+        ownersCreated.addAndGet(owners);
+        carsCreated.addAndGet(cars);
+        policiesCreated.addAndGet(policies);
+    }
+
+    void finished(String failure) {
+        elapsedNanos = System.nanoTime() - startedNanos;
+        finishedAt = Instant.now();
+        error = failure;
+        status = failure == null ? Status.COMPLETED : Status.FAILED;
+    }
+
+    // null while queued or running
+    Instant finishedAt() {
+        return finishedAt;
+    }
+
+    ImportProgress progress() {
+        long elapsed = switch (status) {
+            case QUEUED -> 0;
+            case RUNNING -> System.nanoTime() - startedNanos;
+            default -> elapsedNanos;
+        };
+        long written = rowsImported.get() + rowsRejected.get();
+        double rowsPerSecond = elapsed == 0 ? 0 : written * 1e9 / elapsed;
+        return new ImportProgress(id, status, rowsRead.get(), rowsImported.get(), rowsRejected.get(),
+                ownersCreated.get(), carsCreated.get(), policiesCreated.get(),
+                startedAt, finishedAt, elapsed / 1_000_000, rowsPerSecond, error);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.carins.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// One data record of a fleet import: the fields as uploaded (copied to the reject file) and, once validated,
+// the typed values. error is set instead when the record failed validation.
+record FleetImportRow(long line, List<String> fields,
+                      String ownerName, String ownerEmail,
+                      String vin, String make, String model, int year,
+                      String provider, LocalDate startDate, LocalDate endDate,
+                      String error) {
+
+    static FleetImportRow unchecked(long line, List<String> fields) {
+        return new FleetImportRow(line, fields, null, null, null, null, null, 0, null, null, null, null);
+    }
+
+    FleetImportRow rejected(String error) {
+        return new FleetImportRow(line, fields, null, null, null, null, null, 0, null, null, null, error);
+    }
+
+    boolean hasPolicy() {
+        return provider != null;
+    }
+}
@@ -0,0 +1,447 @@
+package com.example.carins.service;
+
+import com.example.carins.export.CsvRowSink;
+import com.example.carins.model.Car;
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.model.OutboxEvent;
+import com.example.carins.model.Owner;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.repo.projection.PolicySpan;
+import com.example.carins.service.FleetImportColumns.Column;
+import com.example.carins.web.dto.ImportProgress;
+import com.example.carins.web.dto.InsurancePolicyDto;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.PayloadTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+// Staged fleet onboarding from a CSV of owners, cars and (optionally) one policy per row:
+//   upload   - the request body is spooled to disk and the job queued, so the client is not held for the import
+//   parse    - the job thread reads the file record by record into chunks
+//   validate - chunks are checked against the Owner/Car/InsurancePolicy constraints on a pool, several at once
+//   write    - back on the job thread and in file order, one transaction per chunk resolves owners by email and
+//              cars by VIN with one set query each, checks policy overlaps and inserts through batched JPA along
+//              with a POLICY_CREATED change event per policy
+// Rejected rows go to a reject CSV (the original fields plus line and error) that is kept for the retention period
+// after the job finishes, together with the job's progress. Jobs run one at a time; their progress lives in
+// memory and is lost on restart.
+@Service
+public class FleetImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetImportService.class);
+    private static final int FIRST_MODEL_YEAR = 1886;
+
+    private final CarRepository carRepository;
+    private final OwnerRepository ownerRepository;
+    private final PolicyOverlapIndex overlapIndex;
+    private final ApplicationEventPublisher events;
+    private final Outbox outbox;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final Path directory;
+    private final int chunkSize;
+    private final int validationThreads;
+    private final long maxUploadBytes;
+    private final Duration retention;
+    private final ExecutorService jobs;
+    private final ExecutorService validators;
+    private final Map<String, FleetImportJob> jobsById = new ConcurrentHashMap<>();
+
+    public FleetImportService(CarRepository carRepository, OwnerRepository ownerRepository,
+                              PolicyOverlapIndex overlapIndex, ApplicationEventPublisher events, Outbox outbox,
+                              EntityManager entityManager, TransactionTemplate transactionTemplate, Validator validator,
+                              @Value("${carins.import.dir:data/imports}") Path directory,
+                              @Value("${carins.import.chunk-size:500}") int chunkSize,
+                              @Value("${carins.import.validation-threads:0}") int validationThreads,
+                              @Value("${carins.import.max-upload-size:100MB}") DataSize maxUploadSize,
+                              @Value("${carins.import.retention:P1D}") Duration retention) {
+        this.carRepository = carRepository;
+        this.ownerRepository = ownerRepository;
+        this.overlapIndex = overlapIndex;
+        this.events = events;
+        this.outbox = outbox;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        // 0 means one validator per core
+        this.validationThreads = validationThreads > 0 ? validationThreads : Runtime.getRuntime().availableProcessors();
+        this.maxUploadBytes = maxUploadSize.toBytes();
+        this.retention = retention;
+        this.jobs = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("fleet-import").factory());
+        this.validators = Executors.newFixedThreadPool(this.validationThreads,
+                Thread.ofPlatform().name("fleet-import-validator-", 1).factory());
+    }
+
+    public long maxUploadBytes() {
+        return maxUploadBytes;
+    }
+
+    // Spools the upload and queues the import; an upload over max-upload-size or a header without the required
+    // columns is refused right away
+    public ImportProgress submit(InputStream csv) throws IOException {
+        Files.createDirectories(directory);
+        String id = UUID.randomUUID().toString();
+        Path upload = directory.resolve(id + ".csv");
+        try (OutputStream out = Files.newOutputStream(upload)) {
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            for (int n; (n = csv.read(buffer)) >= 0; ) {
+                total += n;
+                if (total > maxUploadBytes) throw new PayloadTooLargeException(null);
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+        try (Reader reader = Files.newBufferedReader(upload, StandardCharsets.UTF_8)) {
+            FleetImportColumns.resolve(new CsvRecordReader(reader).next());
+        } catch (IOException | IllegalArgumentException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+        FleetImportJob job = new FleetImportJob(id, upload, directory.resolve(id + "-rejects.csv"));
+        jobsById.put(id, job);
+        jobs.submit(() -> run(job));
+        return job.progress();
+    }
+
+    public Optional<ImportProgress> progress(String id) {
+        return Optional.ofNullable(jobsById.get(id)).map(FleetImportJob::progress);
+    }
+
+    // the reject file grows chunk by chunk while the job runs
+    public Optional<Path> rejectFile(String id) {
+        return Optional.ofNullable(jobsById.get(id)).map(job -> job.rejectFile).filter(Files::exists);
+    }
+
+    // Forgets jobs that finished more than the retention period ago and deletes their reject files
+    @Scheduled(fixedDelayString = "${carins.import.cleanup-interval:PT10M}")
+    public void evictFinished() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobsById.values().removeIf(job -> {
+            Instant finishedAt = job.finishedAt();
+            if (finishedAt == null || !finishedAt.isBefore(cutoff)) return false;
+            try {
+                Files.deleteIfExists(job.rejectFile);
+            } catch (IOException e) {
+                logger.warn("Cannot delete import rejects {}", job.rejectFile, e);
+            }
+            return true;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.shutdownNow();
+        validators.shutdownNow();
+    }
+
+    private void run(FleetImportJob job) {
+        job.started();
+        String failure = null;
+        try (Reader reader = Files.newBufferedReader(job.upload, StandardCharsets.UTF_8);
+             Writer rejects = Files.newBufferedWriter(job.rejectFile, StandardCharsets.UTF_8)) {
+            CsvRecordReader csv = new CsvRecordReader(reader);
+            List<String> header = csv.next();
+            FleetImportColumns columns = FleetImportColumns.resolve(header);
+            writeRejectHeader(rejects, header);
+
+            // chunks validated ahead of the writer; bounded so a fast parser cannot buffer the whole file
+            Deque<CompletableFuture<List<FleetImportRow>>> validating = new ArrayDeque<>();
+            List<FleetImportRow> chunk = new ArrayList<>(chunkSize);
+            for (List<String> fields = csv.next(); fields != null; fields = csv.next()) {
+                chunk.add(FleetImportRow.unchecked(csv.recordLine(), fields));
+                job.rowRead();
+                if (chunk.size() == chunkSize) {
+                    validating.add(validateAsync(chunk, columns));
+                    chunk = new ArrayList<>(chunkSize);
+                    if (validating.size() > validationThreads) write(job, validating.poll().join(), rejects);
+                }
+            }
+            if (!chunk.isEmpty()) validating.add(validateAsync(chunk, columns));
+            while (!validating.isEmpty()) write(job, validating.poll().join(), rejects);
+        } catch (Exception e) {
+            failure = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            logger.warn("Fleet import {} failed", job.id, e);
+        } finally {
+            try {
+                Files.deleteIfExists(job.upload);
+            } catch (IOException e) {
+                logger.warn("Cannot delete import upload {}", job.upload, e);
+            }
+        }
+        job.finished(failure);
+        ImportProgress progress = job.progress();
+        logger.info("Fleet import {} {}: {} rows imported, {} rejected in {} ms", job.id, progress.status(),
+                progress.rowsImported(), progress.rowsRejected(), progress.elapsedMillis());
+    }
+
+    private CompletableFuture<List<FleetImportRow>> validateAsync(List<FleetImportRow> chunk, FleetImportColumns columns) {
+        return CompletableFuture.supplyAsync(() -> chunk.stream().map(row -> validate(row, columns)).toList(), validators);
+    }
+
+    private FleetImportRow validate(FleetImportRow row, FleetImportColumns columns) {
+        List<String> fields = row.fields();
+        if (fields.size() != columns.width()) {
+            return row.rejected("expected " + columns.width() + " fields, found " + fields.size());
+        }
+        List<String> errors = new ArrayList<>();
+
+        String ownerName = columns.get(fields, Column.OWNER_NAME);
+        String ownerEmail = columns.get(fields, Column.OWNER_EMAIL);
+        if (ownerEmail == null) errors.add("owner_email: must not be blank, owners are matched by email");
+        errors.addAll(describe(validator.validate(new Owner(ownerName, ownerEmail)), "owner_"));
+
+        String vin = columns.get(fields, Column.VIN);
+        String make = columns.get(fields, Column.MAKE);
+        String model = columns.get(fields, Column.MODEL);
+        int year = parseYear(columns.get(fields, Column.YEAR_OF_MANUFACTURE));
+        int lastModelYear = Year.now().getValue() + 1;
+        if (year < FIRST_MODEL_YEAR || year > lastModelYear) {
+            errors.add("year_of_manufacture: must be a year between " + FIRST_MODEL_YEAR + " and " + lastModelYear);
+        }
+        errors.addAll(describe(validator.validate(new Car(vin, make, model, year, null)), ""));
+
+        // a row either carries a complete policy or none at all
+        String provider = columns.get(fields, Column.PROVIDER);
+        LocalDate startDate = parseDate(columns, fields, Column.START_DATE, errors);
+        LocalDate endDate = parseDate(columns, fields, Column.END_DATE, errors);
+        boolean hasStart = columns.get(fields, Column.START_DATE) != null;
+        boolean hasEnd = columns.get(fields, Column.END_DATE) != null;
+        if (provider != null || hasStart || hasEnd) {
+            if (provider == null) errors.add("provider: must not be blank");
+            if (!hasStart) errors.add("start_date: must not be null");
+            if (!hasEnd) errors.add("end_date: must not be null");
+            if (startDate != null && endDate != null && endDate.isBefore(startDate)) {
+                errors.add("end_date: must not be before start_date");
+            }
+        }
+
+        if (!errors.isEmpty()) return row.rejected(String.join("; ", errors));
+        return new FleetImportRow(row.line(), fields, ownerName, ownerEmail, vin, make, model, year,
+                provider, startDate, endDate, null);
+    }
+
+    // 0 (rejected by the range check) when missing or not a number
+    private static int parseYear(String value) {
+        try {
+            return value == null ? 0 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static LocalDate parseDate(FleetImportColumns columns, List<String> fields, Column column, List<String> errors) {
+        String value = columns.get(fields, column);
+        if (value == null) return null;
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            errors.add(column.header() + ": must be a date (yyyy-MM-dd)");
+            return null;
+        }
+    }
+
+    // Stores one validated chunk in file order; rows refused here (VIN owned by someone else, overlapping
+    // coverage) get their error set and everything else in the chunk still goes in. The chunk's existing cars
+    // stay locked in the overlap index until the transaction commits, as for a single policy write.
+    private void write(FleetImportJob job, List<FleetImportRow> rows, Writer rejects) throws IOException {
+        String[] errors = new String[rows.size()];
+        Set<String> vins = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            errors[i] = rows.get(i).error();
+            if (errors[i] == null && rows.get(i).hasPolicy()) vins.add(rows.get(i).vin());
+        }
+        long[] created;
+        try {
+            Set<Long> lockedCars = vins.isEmpty() ? Set.of() : Set.copyOf(carRepository.findIdsByVinIn(vins));
+            created = overlapIndex.withCarsLocked(lockedCars,
+                    () -> transactionTemplate.execute(status -> store(rows, errors, lockedCars)));
+        } catch (RuntimeException e) {
+            String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            logger.warn("Fleet import {}: chunk from line {} not stored", job.id, rows.get(0).line(), e);
+            for (int i = 0; i < errors.length; i++) {
+                if (errors[i] == null) errors[i] = "not stored: " + cause;
+            }
+            created = new long[3];
+        }
+        long rejected = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if (errors[i] == null) continue;
+            writeReject(rejects, rows.get(i), errors[i]);
+            rejected++;
+        }
+        rejects.flush();
+        job.chunkWritten(rows.size() - rejected, rejected, created[0], created[1], created[2]);
+    }
+
+    // returns the number of owners, cars and policies created
+    private long[] store(List<FleetImportRow> rows, String[] errors, Set<Long> lockedCars) {
+        Set<String> emails = new HashSet<>();
+        Set<String> vins = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (errors[i] != null) continue;
+            emails.add(rows.get(i).ownerEmail());
+            vins.add(rows.get(i).vin());
+        }
+        if (emails.isEmpty()) return new long[3];
+        Map<String, Owner> owners = new HashMap<>();
+        for (Owner owner : ownerRepository.findByEmailInOrderByIdAsc(emails)) owners.putIfAbsent(owner.getEmail(), owner);
+        Map<String, Car> cars = new HashMap<>();
+        // cars registered by another request after the chunk's cars were locked take no policies from this chunk
+        Set<String> registeredUnlocked = new HashSet<>();
+        for (Car car : carRepository.findWithOwnerByVinIn(vins)) {
+            cars.put(car.getVin(), car);
+            if (!lockedCars.contains(car.getId())) registeredUnlocked.add(car.getVin());
+        }
+
+        // stored policies are checked before anything is persisted, so the index never loads this chunk's
+        // unflushed rows into its cache
+        boolean checkOverlaps = overlapIndex.mode() != PolicyOverlapIndex.Mode.OFF;
+        List<List<PolicySpan>> storedOverlaps = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            FleetImportRow row = rows.get(i);
+            Car car = errors[i] == null ? cars.get(row.vin()) : null;
+            storedOverlaps.add(checkOverlaps && car != null && row.hasPolicy()
+                    ? overlapIndex.findOverlaps(car.getId(), row.startDate(), row.endDate(), null)
+                    : List.of());
+        }
+
+        long[] created = new long[3];
+        Map<String, List<FleetImportRow>> importedPolicies = new HashMap<>();
+        int flagged = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if (errors[i] != null) continue;
+            FleetImportRow row = rows.get(i);
+            Car car = cars.get(row.vin());
+            if (car != null && !Objects.equals(car.getOwner().getEmail(), row.ownerEmail())) {
+                errors[i] = "vin: " + row.vin() + " is registered to another owner";
+                continue;
+            }
+            if (row.hasPolicy() && checkOverlaps && registeredUnlocked.contains(row.vin())) {
+                errors[i] = "vin: " + row.vin() + " was registered while the import ran, import the row again";
+                continue;
+            }
+            if (row.hasPolicy() && checkOverlaps) {
+                List<String> overlaps = new ArrayList<>();
+                storedOverlaps.get(i).forEach(span -> overlaps.add("policy " + span.id()));
+                for (FleetImportRow other : importedPolicies.getOrDefault(row.vin(), List.of())) {
+                    if (!other.startDate().isAfter(row.endDate()) && !row.startDate().isAfter(other.endDate())) {
+                        overlaps.add("line " + other.line());
+                    }
+                }
+                if (!overlaps.isEmpty()) {
+                    if (overlapIndex.mode() == PolicyOverlapIndex.Mode.REJECT) {
+                        errors[i] = "Policy period overlaps existing coverage for this car: " + String.join(", ", overlaps);
+                        continue;
+                    }
+                    flagged++;
+                }
+            }
+
+            Owner owner = owners.get(row.ownerEmail());
+            if (owner == null) {
+                owner = new Owner(row.ownerName(), row.ownerEmail());
+                entityManager.persist(owner);
+                owners.put(row.ownerEmail(), owner);
+                created[0]++;
+            }
+            if (car == null) {
+                car = new Car(row.vin(), row.make(), row.model(), row.year(), owner);
+                entityManager.persist(car);
+                cars.put(row.vin(), car);
+                created[1]++;
+            }
+            if (row.hasPolicy()) {
+                InsurancePolicy policy = new InsurancePolicy(car, row.provider(), row.startDate(), row.endDate());
+                entityManager.persist(policy);
+                importedPolicies.computeIfAbsent(row.vin(), vin -> new ArrayList<>()).add(row);
+                events.publishEvent(new PolicyChangedEvent(policy.getId(), car.getId(), null));
+                outbox.append(OutboxEvent.Type.POLICY_CREATED, policy.getId(), InsurancePolicyDto.fromEntity(policy));
+                created[2]++;
+            }
+        }
+        if (flagged > 0) logger.warn("Fleet import stored {} policies overlapping coverage of the same car", flagged);
+        // push the batch out and detach it so the persistence context does not grow across chunks
+        entityManager.flush();
+        entityManager.clear();
+        return created;
+    }
+
+    private static void writeRejectHeader(Writer out, List<String> header) throws IOException {
+        out.write("line,");
+        for (String name : header) {
+            CsvRowSink.writeField(out, name);
+            out.write(',');
+        }
+        out.write("error\r\n");
+    }
+
+    private static void writeReject(Writer out, FleetImportRow row, String error) throws IOException {
+        out.write(Long.toString(row.line()));
+        out.write(',');
+        for (String field : row.fields()) {
+            CsvRowSink.writeField(out, field);
+            out.write(',');
+        }
+        CsvRowSink.writeField(out, error);
+        out.write("\r\n");
+    }
+
+    private static <T> List<String> describe(Set<ConstraintViolation<T>> violations, String prefix) {
+        return violations.stream()
+                .sorted(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                .map(v -> prefix + snakeCase(v.getPropertyPath().toString()) + ": " + v.getMessage())
+                .collect(Collectors.toList());
+    }
+
+    private static String snakeCase(String property) {
+        return property.replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.carins.service;
+
+import com.example.carins.model.OutboxEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Appends change events to outbox_event in the caller's transaction, so an event exists if and only if
+// the write it describes committed. The relay is nudged once the transaction commits.
+@Component
+public class Outbox {
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelay relay;
+
+    public Outbox(EntityManager entityManager, ObjectMapper objectMapper, OutboxRelay relay) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.relay = relay;
+    }
+
+    public void append(OutboxEvent.Type type, Long aggregateId, Object payload) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox events must be appended in the transaction of the write");
+        }
+        try {
+            entityManager.persist(new OutboxEvent(type, aggregateId, objectMapper.writeValueAsString(payload)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + type + " payload", e);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                relay.wake();
+            }
+        });
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.OutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Numbers committed outbox rows into the change-event stream. Runs right after every commit that appended
+// events on this node and every poll-interval otherwise (rows from other nodes). Readers wait in
+// awaitAfter() for the stream to move past their offset instead of re-querying. Numbering takes the
+// highest offset plus one, so two nodes relaying at once collide on ux_outbox_offset and one retries.
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final Duration retention;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeup = lock.newCondition();
+    private final Condition relayed = lock.newCondition();
+    private boolean wakeRequested;
+    private volatile long latestOffset;
+    private volatile boolean running;
+    private Thread relay;
+    private Instant nextPrune = Instant.MIN;
+
+    public OutboxRelay(OutboxRepository outboxRepository, TransactionTemplate transactionTemplate,
+                       @Value("${carins.outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${carins.outbox.relay.poll-interval:PT1S}") Duration pollInterval,
+                       @Value("${carins.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${carins.outbox.retention:P7D}") Duration retention) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    public long latestOffset() {
+        return latestOffset;
+    }
+
+    // called after a commit that appended events
+    public void wake() {
+        lock.lock();
+        try {
+            wakeRequested = true;
+            wakeup.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits until events past offset exist or the timeout elapses; true when there is something to read
+    public boolean awaitAfter(long offset, Duration timeout) throws InterruptedException {
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            while (latestOffset <= offset && remaining > 0) {
+                remaining = relayed.awaitNanos(remaining);
+            }
+            return latestOffset > offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        latestOffset = outboxRepository.latestOffset();
+        if (!enabled) return;
+        running = true;
+        relay = Thread.ofPlatform().name("outbox-relay").start(this::relayLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (relay == null) return;
+        relay.interrupt();
+        try {
+            relay.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // started before the subscriber dispatcher, so the stream knows its latest offset before anyone waits on it
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1;
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                relayPending();
+                pruneIfDue();
+                lock.lock();
+                try {
+                    if (!wakeRequested) wakeup.await(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+                    wakeRequested = false;
+                } finally {
+                    lock.unlock();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.warn("Outbox relay failed, retrying in {}", pollInterval, e);
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void relayPending() {
+        long before;
+        long after = latestOffset;
+        do {
+            before = after;
+            after = transactionTemplate.execute(status -> outboxRepository.assignOffsets(batchSize));
+            if (after != latestOffset) published(after);
+        } while (after - before == batchSize);
+    }
+
+    private void published(long offset) {
+        lock.lock();
+        try {
+            latestOffset = offset;
+            relayed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void pruneIfDue() {
+        Instant now = Instant.now();
+        if (now.isBefore(nextPrune)) return;
+        nextPrune = now.plus(Duration.ofHours(1));
+        int deleted = outboxRepository.deleteRelayedBefore(now.minus(retention));
+        if (deleted > 0) logger.info("Pruned {} outbox events older than {}", deleted, retention);
+    }
+}
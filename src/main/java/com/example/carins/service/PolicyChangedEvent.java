@@ -0,0 +1,4 @@
+package com.example.carins.service;
+
+// Published after a policy is created or updated; previousCarId is set when an update moved the policy to another car
+public record PolicyChangedEvent(Long policyId, Long carId, Long previousCarId) {}
@@ -1,43 +1,206 @@
 package com.example.carins.service;
 
-import com.example.carins.model.InsurancePolicy;
+import com.example.carins.notify.ExpiryNotification;
+import com.example.carins.notify.NoticeBatches;
+import com.example.carins.notify.NotificationDispatcher;
 import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.PolicyNoticeRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Tells owners about their expired policies: the backlog is swept by owner-id hash partitions, every owner's
+// expired policies go out as one notification through NotificationDispatcher, and only the policies of delivered
+// notifications are flagged, so a failed send is picked up again by the next sweep.
 @Component
 public class PolicyExpiryLogger {
 
     private static final Logger logger = LoggerFactory.getLogger(PolicyExpiryLogger.class);
 
     private final InsurancePolicyRepository policyRepository;
+    private final ExpiryPartitionLeases leases;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationDispatcher dispatcher;
+    private final NoticeBatches noticeBatches;
+    private final int chunkSize;
+    private final long chunkPauseMillis;
+    private final int workerCount;
+    private final Duration runSkew;
+    private final ExecutorService workers;
+    private final Timer sweepTimer;
+    private final Counter notifiedCounter;
+    private final Counter failureCounter;
+    // expired policies not yet notified, counted when a sweep starts and drawn down chunk by chunk
+    private final AtomicLong backlog = new AtomicLong();
+    private volatile double lastPoliciesPerSecond;
+    private volatile double lastNotificationsPerSecond;
 
-    public PolicyExpiryLogger(InsurancePolicyRepository policyRepository) {
+    public PolicyExpiryLogger(InsurancePolicyRepository policyRepository, ExpiryPartitionLeases leases,
+                              TransactionTemplate transactionTemplate, NotificationDispatcher dispatcher,
+                              NoticeBatches noticeBatches,
+                              @Value("${carins.expiry.chunk-size:500}") int chunkSize,
+                              @Value("${carins.expiry.chunk-pause-ms:0}") long chunkPauseMillis,
+                              @Value("${carins.expiry.workers:4}") int workerCount,
+                              @Value("${carins.expiry.run-skew:PT1M}") Duration runSkew,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                              MeterRegistry meterRegistry) {
         this.policyRepository = policyRepository;
+        this.leases = leases;
+        this.transactionTemplate = transactionTemplate;
+        this.dispatcher = dispatcher;
+        this.noticeBatches = noticeBatches;
+        this.chunkSize = chunkSize;
+        this.chunkPauseMillis = chunkPauseMillis;
+        this.workerCount = workerCount;
+        this.runSkew = runSkew;
+        // only workerCount tasks are ever submitted per sweep, so both executors run at most that many at once
+        this.workers = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("expiry-worker-", 1).factory())
+                : Executors.newFixedThreadPool(workerCount, Thread.ofPlatform().name("expiry-worker-", 1).factory());
+        this.sweepTimer = Timer.builder("carins.expiry.sweep")
+                .description("Duration of expiry sweeps on this node")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.notifiedCounter = Counter.builder("carins.expiry.policies.notified").register(meterRegistry);
+        this.failureCounter = Counter.builder("carins.expiry.sweep.failures").register(meterRegistry);
+        Gauge.builder("carins.expiry.backlog", backlog, AtomicLong::get)
+                .description("Expired policies waiting for notification")
+                .register(meterRegistry);
+        Gauge.builder("carins.expiry.last.rate", this, sweeper -> sweeper.lastPoliciesPerSecond)
+                .description("Policies per second notified by the last sweep on this node")
+                .register(meterRegistry);
+        Gauge.builder("carins.expiry.last.notification.rate", this, sweeper -> sweeper.lastNotificationsPerSecond)
+                .description("Owner notifications per second delivered by the last sweep on this node")
+                .register(meterRegistry);
     }
 
-    @Scheduled(cron = "0 0 * * * ?") // Run every hour at the start of the hour
-    @Transactional
+    @Scheduled(cron = "${carins.expiry.cron:0 0 * * * ?}") // carins.expiry.cron, hourly by default; "-" disables it
     public void logExpiredPolicies() {
         try {
-            LocalDate today = LocalDate.now();
-            List<InsurancePolicy> expiredPolicies = policyRepository.findExpiredNotNotified(today);
-            for (InsurancePolicy policy : expiredPolicies) {
-                logger.info("Policy {} for car {} expired on {}",
-                        policy.getId(),
-                        policy.getCar().getId(),
-                        policy.getEndDate());
-                policy.setExpiryNotified(true);
-                policyRepository.save(policy);
-            }
+            ExpirySweepResult result = sweep(LocalDate.now());
+            logger.info("Expiry sweep on node {} sent {} notifications for {} policies from {} partitions in {} chunks, " +
+                        "{} ms ({} notifications/s, {} policies/s)",
+                    leases.nodeId(), result.notifications(), result.policies(), result.partitions(), result.chunks(),
+                    result.elapsedMillis(), String.format("%.1f", result.notificationsPerSecond()),
+                    String.format("%.1f", result.policiesPerSecond()));
         } catch (Exception e) {
+            failureCounter.increment();
             logger.error("Error processing expired policies", e);
         }
     }
-}
\ No newline at end of file
+
+    // Every worker keeps claiming owner-id partitions until none is left for this run, on this node or any other
+    public ExpirySweepResult sweep(LocalDate today) throws InterruptedException {
+        long started = System.nanoTime();
+        // partitions another node finished within the skew window belong to the same run
+        Instant runStartedAt = Instant.now().minus(runSkew);
+        leases.ensurePartitions();
+        backlog.set(policyRepository.countExpiredNotNotified(today));
+
+        List<Future<ExpirySweepResult>> results = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            results.add(workers.submit(() -> sweepClaimedPartitions(today, runStartedAt)));
+        }
+        long policies = 0, notifications = 0;
+        int chunks = 0, partitions = 0;
+        for (Future<ExpirySweepResult> result : results) {
+            try {
+                ExpirySweepResult r = result.get();
+                policies += r.policies();
+                notifications += r.notifications();
+                chunks += r.chunks();
+                partitions += r.partitions();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Expiry worker failed", e.getCause());
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        sweepTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        ExpirySweepResult result = new ExpirySweepResult(policies, notifications, chunks, partitions, elapsed / 1_000_000);
+        lastPoliciesPerSecond = result.policiesPerSecond();
+        lastNotificationsPerSecond = result.notificationsPerSecond();
+        return result;
+    }
+
+    private ExpirySweepResult sweepClaimedPartitions(LocalDate today, Instant runStartedAt) throws InterruptedException {
+        long policies = 0, notifications = 0;
+        int chunks = 0, partitions = 0;
+        OptionalInt claimed;
+        while ((claimed = leases.claim(runStartedAt)).isPresent()) {
+            int partition = claimed.getAsInt();
+            boolean finished = false;
+            try {
+                ExpirySweepResult r = sweepPartition(today, partition);
+                policies += r.policies();
+                notifications += r.notifications();
+                chunks += r.chunks();
+                partitions++;
+                finished = true;
+            } finally {
+                if (finished) leases.release(partition);
+                else leases.abandon(partition);
+            }
+        }
+        return new ExpirySweepResult(policies, notifications, chunks, partitions, 0);
+    }
+
+    // Reads the owners of the partition's backlog in one pass over ix_policy_expiry_backlog, then works through them
+    // in windows of chunk-size owners: loads each window's expired policies, sends one notification per owner and
+    // flags the delivered policies in one short transaction. A sweep with nothing due costs one index range scan.
+    private ExpirySweepResult sweepPartition(LocalDate today, int partition) throws InterruptedException {
+        List<Long> owners = policyRepository.findOwnerIdsWithExpiredNotNotified(today, leases.partitions(), partition);
+        long policies = 0, notifications = 0;
+        int chunks = 0;
+        for (int from = 0; from < owners.size(); from += chunkSize) {
+            if (from > 0) {
+                if (!leases.renew(partition)) {
+                    logger.warn("Lost lease on expiry partition {}, leaving the rest to its new owner", partition);
+                    break;
+                }
+                if (chunkPauseMillis > 0) Thread.sleep(chunkPauseMillis);
+            }
+            List<Long> window = owners.subList(from, Math.min(from + chunkSize, owners.size()));
+            List<PolicyNoticeRow> rows = policyRepository.findExpiredNotNotifiedByOwnerIdIn(today, window);
+            if (rows.isEmpty()) continue; // flagged by another sweep since the owners were read
+            List<ExpiryNotification> delivered = dispatcher.dispatch(
+                    noticeBatches.compose(ExpiryNotification.EXPIRY, rows, ExpiryNotification::render));
+            List<Long> ids = delivered.stream().flatMap(n -> n.policyIds().stream()).toList();
+            Integer flagged = ids.isEmpty() ? 0 : transactionTemplate.execute(status -> {
+                noticeBatches.confirm(ExpiryNotification.EXPIRY, ids);
+                return policyRepository.markExpiryNotified(ids);
+            });
+            policies += flagged;
+            notifications += delivered.size();
+            chunks++;
+            notifiedCounter.increment(flagged);
+            backlog.addAndGet(-flagged);
+        }
+        return new ExpirySweepResult(policies, notifications, chunks, 1, 0);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.PolicySpan;
+import com.example.carins.web.dto.ExpiringPolicy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Timing wheel of the policies that have not ended yet, keyed by end date as epoch day: one slot per day for the
+// next SLOTS days, policies ending later wait in an overflow map and drop into their slot as the wheel turns.
+// "What ends in the next N days" reads N slots, so it costs the size of the answer rather than a scan of
+// insurancepolicy. Loaded once the application is ready and kept current from PolicyChangedEvent; until the first
+// load finishes, and for days before the wheel's current day, lookups go to the database.
+@Component
+public class PolicyExpiryWheel {
+
+    static final int SLOTS = 512; // a power of two above the longest lookahead
+    private static final int RELOAD_STRIPES = 64;
+    public static final int MAX_LOOKAHEAD_DAYS = 366;
+
+    private static final Logger logger = LoggerFactory.getLogger(PolicyExpiryWheel.class);
+
+    private final JdbcTemplate jdbc;
+    private final InsurancePolicyRepository policyRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Wheel wheel; // guarded by lock
+    // policies changed while a rebuild reads the table, reloaded into the new wheel once it is swapped in
+    private Set<Long> changedDuringRebuild; // guarded by lock
+    private final ReentrantLock[] reloadLocks = new ReentrantLock[RELOAD_STRIPES];
+
+    public PolicyExpiryWheel(JdbcTemplate jdbc, InsurancePolicyRepository policyRepository, MeterRegistry meterRegistry) {
+        this.jdbc = jdbc;
+        this.policyRepository = policyRepository;
+        for (int i = 0; i < RELOAD_STRIPES; i++) reloadLocks[i] = new ReentrantLock();
+        Gauge.builder("carins.expiry.wheel.size", this, PolicyExpiryWheel::size)
+                .description("Policies not yet ended held in the expiry lookahead wheel")
+                .register(meterRegistry);
+    }
+
+    // Policies ending in [today, today + withinDays], by end date and id
+    public List<ExpiringPolicy> expiringWithin(LocalDate today, int withinDays) {
+        return ending(today, 0, withinDays);
+    }
+
+    // Policies ending exactly daysLeft days after today, by id; reads a single slot
+    public List<ExpiringPolicy> endingOn(LocalDate today, int daysLeft) {
+        return ending(today, daysLeft, daysLeft);
+    }
+
+    private List<ExpiringPolicy> ending(LocalDate today, int fromDays, int toDays) {
+        if (fromDays < 0 || toDays > MAX_LOOKAHEAD_DAYS) {
+            throw new IllegalArgumentException("days must be between 0 and " + MAX_LOOKAHEAD_DAYS);
+        }
+        long day = today.toEpochDay();
+        advanceTo(day);
+        lock.readLock().lock();
+        try {
+            if (wheel != null && wheel.baseDay <= day) {
+                return wheel.between(day, day + fromDays, day + toDays);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return policyRepository.findEndingBetween(today.plusDays(fromDays), today.plusDays(toDays)).stream()
+                .map(p -> ExpiringPolicy.of(p.id(), p.carId(), p.endDate(), today))
+                .toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyChanged(PolicyChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) changedDuringRebuild.add(event.policyId());
+            if (wheel == null) return;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reload(List.of(event.policyId()));
+    }
+
+    // Reads every policy that has not ended into a fresh wheel and swaps it in; writes during the read are replayed
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Wheel next = new Wheel(today.toEpochDay());
+        jdbc.query("select id, car_id, end_date from insurancepolicy where end_date >= ?", (RowCallbackHandler) rs ->
+                next.put(rs.getLong(1), rs.getLong(2), rs.getObject(3, LocalDate.class).toEpochDay()), today);
+        Set<Long> changed;
+        lock.writeLock().lock();
+        try {
+            wheel = next;
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reload(changed);
+        logger.info("Expiry wheel built with {} policies in {} ms", size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return wheel == null ? 0 : wheel.endDays.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The database row is the source of truth, whatever order change events arrive in. Reloads of one policy are
+    // serialized on its stripe from the read to the update of the wheel, so a reload that read an older row can
+    // never land after one that read a newer row.
+    private void reload(Iterable<Long> policyIds) {
+        for (Long policyId : policyIds) {
+            ReentrantLock stripe = reloadLocks[Long.hashCode(policyId) & (RELOAD_STRIPES - 1)];
+            stripe.lock();
+            try {
+                PolicySpan span = policyRepository.findSpanById(policyId).orElse(null);
+                lock.writeLock().lock();
+                try {
+                    wheel.remove(policyId);
+                    if (span != null && span.endDate() != null) {
+                        wheel.put(policyId, span.carId(), span.endDate().toEpochDay());
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    private void advanceTo(long day) {
+        lock.readLock().lock();
+        try {
+            if (wheel == null || wheel.baseDay >= day) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            wheel.advanceTo(day);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Not thread-safe; every access goes through the outer lock
+    private static final class Wheel {
+
+        // slot (day & (SLOTS - 1)) holds policy id -> car id for the days in [baseDay, baseDay + SLOTS)
+        final List<Map<Long, Long>> slots = new ArrayList<>(SLOTS);
+        final TreeMap<Long, Map<Long, Long>> overflow = new TreeMap<>();
+        final Map<Long, Long> endDays = new HashMap<>();
+        long baseDay;
+
+        Wheel(long baseDay) {
+            this.baseDay = baseDay;
+            for (int i = 0; i < SLOTS; i++) slots.add(new HashMap<>());
+        }
+
+        void put(long policyId, long carId, long endDay) {
+            if (endDay < baseDay) return; // already ended
+            endDays.put(policyId, endDay);
+            bucket(endDay, true).put(policyId, carId);
+        }
+
+        void remove(long policyId) {
+            Long endDay = endDays.remove(policyId);
+            if (endDay == null) return;
+            Map<Long, Long> bucket = bucket(endDay, false);
+            bucket.remove(policyId);
+            if (bucket.isEmpty()) overflow.remove(endDay);
+        }
+
+        // clears the slots of the days that have passed and cascades the overflow days now within reach
+        void advanceTo(long day) {
+            if (day <= baseDay) return; // another caller already turned it
+            for (long d = baseDay; d < Math.min(day, baseDay + SLOTS); d++) {
+                Map<Long, Long> slot = slots.get(slot(d));
+                slot.keySet().forEach(endDays::remove);
+                slot.clear();
+            }
+            baseDay = day;
+            Map<Long, Map<Long, Long>> due = overflow.headMap(baseDay + SLOTS);
+            for (Map.Entry<Long, Map<Long, Long>> entry : due.entrySet()) {
+                if (entry.getKey() < baseDay) {
+                    entry.getValue().keySet().forEach(endDays::remove);
+                } else {
+                    slots.get(slot(entry.getKey())).putAll(entry.getValue());
+                }
+            }
+            due.clear();
+        }
+
+        // policies ending in [fromDay, toDay], with their days left counted from today
+        List<ExpiringPolicy> between(long today, long fromDay, long toDay) {
+            List<ExpiringPolicy> result = new ArrayList<>();
+            for (long d = fromDay; d <= toDay; d++) {
+                LocalDate endDate = LocalDate.ofEpochDay(d);
+                long daysLeft = d - today;
+                int first = result.size();
+                slots.get(slot(d)).forEach((policyId, carId) ->
+                        result.add(new ExpiringPolicy(policyId, carId, endDate, daysLeft)));
+                result.subList(first, result.size()).sort((a, b) -> Long.compare(a.policyId(), b.policyId()));
+            }
+            return result;
+        }
+
+        private Map<Long, Long> bucket(long endDay, boolean create) {
+            if (endDay < baseDay + SLOTS) return slots.get(slot(endDay));
+            return create ? overflow.computeIfAbsent(endDay, d -> new HashMap<>()) : overflow.getOrDefault(endDay, new HashMap<>());
+        }
+
+        private static int slot(long day) {
+            return (int) (day & (SLOTS - 1));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Optional in-memory coverage index per car, filled on first lookup and
+// dropped for a car whenever one of its policies changes.
+@Component
+public class PolicyIntervalIndex {
+
+    private final CarRepository carRepository;
+    private final InsurancePolicyRepository policyRepository;
+    private final boolean enabled;
+
+    private final ConcurrentHashMap<Long, CoverageIntervals> byCar = new ConcurrentHashMap<>();
+    // bumped on every invalidation so a load racing with a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public PolicyIntervalIndex(CarRepository carRepository, InsurancePolicyRepository policyRepository,
+                               @Value("${carins.policy-index.enabled:false}") boolean enabled) {
+        this.carRepository = carRepository;
+        this.policyRepository = policyRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Returns null when the car does not exist
+    public CoverageIntervals intervalsFor(Long carId) {
+        CoverageIntervals cached = byCar.get(carId);
+        if (cached != null) return cached;
+
+        long seen = generation.get();
+        if (!carRepository.cachedExistsById(carId)) return null;
+        CoverageIntervals loaded = CoverageIntervals.of(policyRepository.findPeriodsByCarId(carId));
+        // cache first, then check: an invalidation bumps the generation before removing, so one that started after
+        // seen either removes this entry itself or is caught here
+        byCar.putIfAbsent(carId, loaded);
+        if (generation.get() != seen) byCar.remove(carId, loaded);
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyChanged(PolicyChangedEvent event) {
+        generation.incrementAndGet();
+        if (event.carId() != null) byCar.remove(event.carId());
+        if (event.previousCarId() != null) byCar.remove(event.previousCarId());
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        byCar.clear();
+    }
+}
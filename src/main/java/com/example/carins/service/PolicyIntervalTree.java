@@ -0,0 +1,61 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.projection.PolicySpan;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Static interval tree over one car's policies: spans sorted by start form an implicit balanced BST
+// (the middle of every range is its root), and each node keeps the largest end in its subtree.
+// A stabbing query prunes subtrees that end before the range or start after it, O(log n + k).
+final class PolicyIntervalTree {
+
+    private final PolicySpan[] spans;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnd;
+
+    PolicyIntervalTree(List<PolicySpan> policies) {
+        this.spans = policies.stream()
+                .sorted(Comparator.comparing(PolicySpan::startDate).thenComparing(PolicySpan::id))
+                .toArray(PolicySpan[]::new);
+        int n = spans.length;
+        this.starts = new long[n];
+        this.ends = new long[n];
+        this.maxEnd = new long[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = spans[i].startDate().toEpochDay();
+            ends[i] = spans[i].endDate() == null ? Long.MAX_VALUE : spans[i].endDate().toEpochDay();
+        }
+        fillMaxEnd(0, n - 1);
+    }
+
+    int size() {
+        return spans.length;
+    }
+
+    // Policies sharing at least one day with [start, end] (inclusive epoch days), other than excludeId
+    List<PolicySpan> overlapping(long start, long end, Long excludeId) {
+        List<PolicySpan> found = new ArrayList<>(2);
+        collect(0, spans.length - 1, start, end, excludeId, found);
+        return found;
+    }
+
+    private long fillMaxEnd(int lo, int hi) {
+        if (lo > hi) return Long.MIN_VALUE;
+        int mid = (lo + hi) >>> 1;
+        maxEnd[mid] = Math.max(ends[mid], Math.max(fillMaxEnd(lo, mid - 1), fillMaxEnd(mid + 1, hi)));
+        return maxEnd[mid];
+    }
+
+    private void collect(int lo, int hi, long start, long end, Long excludeId, List<PolicySpan> found) {
+        if (lo > hi) return;
+        int mid = (lo + hi) >>> 1;
+        if (maxEnd[mid] < start) return; // everything below ends before the range
+        collect(lo, mid - 1, start, end, excludeId, found);
+        if (starts[mid] > end) return; // this node and everything right of it start after the range
+        if (ends[mid] >= start && !spans[mid].id().equals(excludeId)) found.add(spans[mid]);
+        collect(mid + 1, hi, start, end, excludeId, found);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.carins.service;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.PolicyScanRepository;
+import com.example.carins.repo.projection.PolicySpan;
+import com.example.carins.web.dto.PolicyOverlap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Per-car interval trees of policy spans, built on the first check for a car and dropped whenever one of its
+// policies changes. Writes for the same car are serialized through striped locks so two requests cannot both
+// pass the check and then store overlapping policies; this guards a single node only.
+@Component
+public class PolicyOverlapIndex {
+
+    public enum Mode { REJECT, FLAG, OFF }
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final InsurancePolicyRepository policyRepository;
+    private final PolicyScanRepository scanRepository;
+    private final Mode mode;
+
+    private final ConcurrentHashMap<Long, PolicyIntervalTree> byCar = new ConcurrentHashMap<>();
+    // bumped on every invalidation so a load racing with a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public PolicyOverlapIndex(InsurancePolicyRepository policyRepository, PolicyScanRepository scanRepository,
+                              @Value("${carins.policy-overlap.mode:reject}") Mode mode) {
+        this.policyRepository = policyRepository;
+        this.scanRepository = scanRepository;
+        this.mode = mode;
+        for (int i = 0; i < LOCK_STRIPES; i++) locks[i] = new ReentrantLock();
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    // Policies of the car sharing at least one day with [start, end], excluding the policy being updated;
+    // always empty when the check is off
+    public List<PolicySpan> findOverlaps(Long carId, LocalDate start, LocalDate end, Long excludeId) {
+        if (mode == Mode.OFF) return List.of();
+        return treeFor(carId).overlapping(start.toEpochDay(), end.toEpochDay(), excludeId);
+    }
+
+    // Runs check + save for one or two cars (an update moving a policy) while holding their lock stripes
+    public <T> T withCarsLocked(Long carId, Long otherCarId, Supplier<T> action) {
+        return withCarsLocked(otherCarId == null ? List.of(carId) : List.of(carId, otherCarId), action);
+    }
+
+    // Holds the lock stripes of all the cars, always taken in stripe order so two writers locking overlapping
+    // sets cannot deadlock
+    public <T> T withCarsLocked(Collection<Long> carIds, Supplier<T> action) {
+        if (mode == Mode.OFF) return action.get();
+        int[] stripes = carIds.stream().mapToInt(PolicyOverlapIndex::stripe).distinct().sorted().toArray();
+        int held = 0;
+        try {
+            for (; held < stripes.length; held++) locks[stripes[held]].lock();
+            return action.get();
+        } finally {
+            while (held > 0) locks[stripes[--held]].unlock();
+        }
+    }
+
+    // Every overlapping pair across the fleet from one pass over policies ordered by car and start date.
+    // Per car only the policies still running at the current start are kept, so memory is bounded by the
+    // deepest overlap rather than by the history length.
+    public void scanFleet(Consumer<PolicyOverlap> action) {
+        List<PolicySpan> active = new ArrayList<>();
+        Long[] currentCar = {null};
+        scanRepository.forEachPolicyByCar(span -> {
+            if (!span.carId().equals(currentCar[0])) {
+                active.clear();
+                currentCar[0] = span.carId();
+            }
+            for (Iterator<PolicySpan> it = active.iterator(); it.hasNext(); ) {
+                PolicySpan other = it.next();
+                if (other.endDate() != null && other.endDate().isBefore(span.startDate())) {
+                    it.remove();
+                } else {
+                    action.accept(new PolicyOverlap(span.carId(), other.id(), span.id(), span.startDate(),
+                            earlierEnd(other.endDate(), span.endDate())));
+                }
+            }
+            active.add(span);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyChanged(PolicyChangedEvent event) {
+        generation.incrementAndGet();
+        if (event.carId() != null) byCar.remove(event.carId());
+        if (event.previousCarId() != null) byCar.remove(event.previousCarId());
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        byCar.clear();
+    }
+
+    private PolicyIntervalTree treeFor(Long carId) {
+        PolicyIntervalTree cached = byCar.get(carId);
+        if (cached != null) return cached;
+
+        long seen = generation.get();
+        PolicyIntervalTree loaded = new PolicyIntervalTree(policyRepository.findSpansByCarId(carId));
+        if (generation.get() == seen) {
+            byCar.putIfAbsent(carId, loaded);
+        }
+        return loaded;
+    }
+
+    private static int stripe(Long carId) {
+        return Math.floorMod(Long.hashCode(carId), LOCK_STRIPES);
+    }
+
+    private static LocalDate earlierEnd(LocalDate a, LocalDate b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.carins.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter of every VIN in the car table: mightContain == false means the VIN is certainly unknown.
+// Built from the database once the application is ready and fed by CarVinListener after every committed insert or
+// VIN change; until the first build finishes every VIN "might" exist, so lookups just go to the database.
+// VINs added while a rebuild scans the table are recorded and replayed into the new filter before it is swapped in.
+@Component
+public class VinFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(VinFilter.class);
+
+    private final JdbcTemplate jdbc;
+    private final double falsePositiveRate;
+    private final int minCapacity;
+    private volatile Bits current;
+    private final Object swapLock = new Object();
+    // VINs added since the running rebuild started its scan; null when no rebuild runs. Guarded by swapLock.
+    private List<String> addedDuringRebuild;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final ExecutorService rebuilder =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("vin-filter-rebuild").daemon().factory());
+
+    public VinFilter(JdbcTemplate jdbc, MeterRegistry meterRegistry,
+                     @Value("${carins.vin-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                     @Value("${carins.vin-filter.min-capacity:100000}") int minCapacity) {
+        this.jdbc = jdbc;
+        this.falsePositiveRate = falsePositiveRate;
+        this.minCapacity = minCapacity;
+        Gauge.builder("carins.vin.filter.size", this, f -> f.current == null ? 0 : f.current.added.get())
+                .description("VINs added to the lookup filter")
+                .register(meterRegistry);
+    }
+
+    public boolean mightContain(String vin) {
+        Bits bits = current;
+        return bits == null || bits.mightContain(vin);
+    }
+
+    // call once the VIN is committed: a scan that started earlier may not have seen it
+    public void add(String vin) {
+        Bits bits;
+        synchronized (swapLock) {
+            bits = current;
+            if (bits != null) bits.add(vin);
+            if (addedDuringRebuild != null) addedDuringRebuild.add(vin);
+        }
+        // past its capacity the false positive rate climbs; rebuild at twice the size, off the writer's thread
+        if (bits != null && bits.added.get() > bits.capacity && rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    logger.warn("VIN filter rebuild failed, keeping the current filter", e);
+                } finally {
+                    rebuildQueued.set(false);
+                }
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        synchronized (swapLock) {
+            addedDuringRebuild = new ArrayList<>();
+        }
+        Bits next;
+        try {
+            long cars = jdbc.queryForObject("select count(*) from car", Long.class);
+            next = new Bits(Math.max(minCapacity, cars * 2), falsePositiveRate);
+            jdbc.query("select vin from car", (RowCallbackHandler) rs -> next.add(rs.getString(1)));
+        } catch (RuntimeException e) {
+            synchronized (swapLock) {
+                addedDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (swapLock) {
+            addedDuringRebuild.forEach(next::add);
+            addedDuringRebuild = null;
+            current = next;
+        }
+        logger.info("VIN filter built with {} VINs ({} KiB) in {} ms", next.added.get(),
+                next.words.length() / 128, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private static final class Bits {
+        final AtomicLongArray words;
+        final long bitCount;
+        final int hashes;
+        final long capacity;
+        final AtomicLong added = new AtomicLong();
+
+        // standard sizing: m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 hash functions
+        Bits(long capacity, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+            this.bitCount = (long) words.length() * 64;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        void add(String vin) {
+            if (vin == null) return;
+            long hash = hash(vin);
+            int h1 = (int) hash, h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                long old;
+                while (((old = words.get(word)) & mask) == 0 && !words.compareAndSet(word, old, old | mask)) {
+                    // lost a race on this word, retry
+                }
+            }
+            added.incrementAndGet();
+        }
+
+        boolean mightContain(String vin) {
+            long hash = hash(vin);
+            int h1 = (int) hash, h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a with a murmur finalizer; the two halves drive the double hashing above
+        private static long hash(String vin) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : vin.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.carins.web;
+
+import com.example.carins.web.dto.CacheRegionStats;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api")
+public class CacheStatsController {
+
+    private final Statistics statistics;
+
+    public CacheStatsController(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Hit/miss counters per second-level cache region since startup (needs hibernate.generate_statistics)
+    @GetMapping("/cache/stats")
+    public List<CacheRegionStats> getCacheStats() {
+        String[] regions = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+        List<CacheRegionStats> stats = new ArrayList<>(regions.length);
+        for (String region : regions) {
+            CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+            if (regionStats == null) continue;
+            stats.add(new CacheRegionStats(region, regionStats.getHitCount(), regionStats.getMissCount(),
+                    regionStats.getPutCount(), regionStats.getElementCountInMemory()));
+        }
+        return stats;
+    }
+}
@@ -2,115 +2,287 @@ package com.example.carins.web;
 
 import com.example.carins.model.Car;
 import com.example.carins.model.InsuranceClaim;
-import com.example.carins.model.InsurancePolicy;
+import com.example.carins.repo.CarHistoryRepository;
+import com.example.carins.repo.CarHistoryRepository.Cursor;
+import com.example.carins.repo.CarHistoryRepository.HistoryFilter;
 import com.example.carins.repo.CarRepository;
-import com.example.carins.repo.InsuranceClaimRepository;
-import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.CarEventRow;
 import com.example.carins.service.CarService;
+import com.example.carins.service.ClaimIngestionService;
+import com.example.carins.service.ClaimWriteBehindQueue;
+import com.example.carins.service.CoverageIntervals;
 import com.example.carins.web.dto.CarDto;
+import com.example.carins.web.dto.ClaimTrackingStatus;
+import com.example.carins.web.dto.CursorPage;
 import com.example.carins.web.dto.InsuranceClaimDto;
 import com.example.carins.web.dto.InsurancePolicyDto;
+import com.example.carins.web.dto.InsuranceValidityQuery;
+import com.example.carins.web.dto.InsuranceValidityResult;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
 public class CarController {
 
+    private static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(2100, 12, 31);
+    private static final int VALIDITY_BATCH_CHUNK = 1000;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_PAGE_SIZE = 500;
+
     private final CarService service;
     private final CarRepository carRepository;
-    private final InsurancePolicyRepository policyRepository;
-    private final InsuranceClaimRepository claimRepository;
+    private final ClaimIngestionService ingestionService;
+    private final CarHistoryRepository historyRepository;
+    private final ClaimWriteBehindQueue writeBehindQueue;
+    private final ObjectMapper objectMapper;
 
     public CarController(CarService service, CarRepository carRepository,
-                         InsurancePolicyRepository policyRepository, InsuranceClaimRepository claimRepository) {
+                         ClaimIngestionService ingestionService, CarHistoryRepository historyRepository,
+                         ClaimWriteBehindQueue writeBehindQueue, ObjectMapper objectMapper) {
         this.service = service;
         this.carRepository = carRepository;
-        this.policyRepository = policyRepository;
-        this.claimRepository = claimRepository;
+        this.ingestionService = ingestionService;
+        this.historyRepository = historyRepository;
+        this.writeBehindQueue = writeBehindQueue;
+        this.objectMapper = objectMapper;
     }
 
+    // Whole fleet as a JSON array (or NDJSON), written page by page so memory stays flat
     @GetMapping("/cars")
-    public ResponseEntity<List<CarDto>> getCars() {
-        return ResponseEntity.ok(service.listCars().stream().map(this::toDto).toList());
+    public void getCars(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                        HttpServletResponse response) throws IOException {
+        try (JsonStreamWriter out = JsonStreamWriter.start(objectMapper, response, accept)) {
+            long afterId = 0;
+            List<CarDto> page;
+            do {
+                page = service.listCarsAfter(afterId, STREAM_PAGE_SIZE);
+                for (CarDto car : page) {
+                    out.write(car);
+                }
+                if (!page.isEmpty()) afterId = page.get(page.size() - 1).id();
+            } while (page.size() == STREAM_PAGE_SIZE);
+        }
+    }
+
+    @GetMapping(value = "/cars", params = "limit")
+    public ResponseEntity<?> getCarsPage(@RequestParam(defaultValue = "0") long after, @RequestParam int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            Map<String, String> errors = new HashMap<>();
+            errors.put("limit", "must be between 1 and " + MAX_PAGE_SIZE);
+            return ResponseEntity.badRequest().body(errors);
+        }
+        // one extra row tells whether another page exists
+        List<CarDto> cars = service.listCarsAfter(after, limit + 1);
+        if (cars.size() <= limit) {
+            return ResponseEntity.ok(new CursorPage<>(cars, null));
+        }
+        List<CarDto> items = cars.subList(0, limit);
+        return ResponseEntity.ok(new CursorPage<>(items, String.valueOf(items.get(limit - 1).id())));
+    }
+
+    @GetMapping("/cars/by-vin/{vin}")
+    public CarDto getCarByVin(@PathVariable String vin) {
+        return service.getCarByVin(vin);
     }
 
     @GetMapping("/cars/{carId}/insurance-valid")
     public ResponseEntity<?> isInsuranceValid(
             @PathVariable Long carId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        LocalDate minDate = LocalDate.of(1900, 1, 1);
-        LocalDate maxDate = LocalDate.of(2100, 12, 31);
-        if (date.isBefore(minDate) || date.isAfter(maxDate)) {
+        if (date.isBefore(MIN_DATE) || date.isAfter(MAX_DATE)) {
             Map<String, String> errors = new HashMap<>();
-            errors.put("date", "must be between " + minDate + " and " + maxDate);
+            errors.put("date", "must be between " + MIN_DATE + " and " + MAX_DATE);
             return ResponseEntity.badRequest().body(errors);
         }
         boolean valid = service.isInsuranceValid(carId, date);
         return ResponseEntity.ok(new InsuranceValidityResponse(carId, date.toString(), valid));
     }
 
+    // Body is a JSON array or NDJSON of {carId, date}; results are streamed back in input order,
+    // resolved in chunks with a fixed number of set queries each
+    @PostMapping(value = "/cars/insurance-valid/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public void isInsuranceValidBatch(InputStream body,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                      HttpServletResponse response) throws IOException {
+        try (MappingIterator<InsuranceValidityQuery> queries =
+                     objectMapper.readerFor(InsuranceValidityQuery.class).readValues(body)) {
+            // read the first chunk before committing the response so malformed input still gets a 400
+            List<InsuranceValidityQuery> chunk = nextChunk(queries);
+            try (JsonStreamWriter out = JsonStreamWriter.start(objectMapper, response, accept)) {
+                while (!chunk.isEmpty()) {
+                    for (InsuranceValidityResult result : resolveValidity(chunk)) {
+                        out.write(result);
+                    }
+                    chunk = nextChunk(queries);
+                }
+            }
+        }
+    }
+
+    // With "Prefer: respond-async" and the write-behind queue enabled the claim is queued and 202 returned;
+    // the car is checked when the queue stores it, see GET /api/claims/tracking/{trackingId}
     @PostMapping("/cars/{carId}/claims")
-    public ResponseEntity<InsuranceClaimDto> registerClaim(
+    public ResponseEntity<?> registerClaim(
             @PathVariable Long carId,
-            @Valid @RequestBody InsuranceClaimDto claimDto) {
+            @Valid @RequestBody InsuranceClaimDto claimDto,
+            @RequestHeader(value = "Prefer", required = false) String prefer) throws IOException {
         if (!carId.equals(claimDto.carId())) {
             return ResponseEntity.badRequest().body(null); // 400: mismatched carId
         }
+        if (writeBehindQueue.isEnabled() && prefer != null && prefer.contains("respond-async")) {
+            Optional<String> trackingId = writeBehindQueue.submit(claimDto);
+            if (trackingId.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(Map.of("error", "Claim queue is full, retry later")); // 429: backpressure
+            }
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/claims/tracking/" + trackingId.get()))
+                    .body(ClaimTrackingStatus.pending(trackingId.get()));
+        }
         Optional<Car> carOpt = carRepository.findById(carId);
         if (carOpt.isEmpty()) {
             return ResponseEntity.notFound().build(); // 404: car not found
         }
-        Car car = carOpt.get();
-        InsuranceClaim claim = new InsuranceClaim(car, claimDto.claimDate(), claimDto.description(), claimDto.amount());
-        InsuranceClaim saved = claimRepository.save(claim);
+        InsuranceClaim saved = ingestionService.register(carOpt.get(), claimDto);
         return ResponseEntity.created(URI.create("/api/cars/" + carId + "/claims/" + saved.getId()))
                 .body(InsuranceClaimDto.fromEntity(saved));
     }
 
+    // Timeline of policies and claims, ordered by the database and streamed as it is read
     @GetMapping("/cars/{carId}/history")
-    public ResponseEntity<List<CarEventDto>> getCarHistory(@PathVariable Long carId) {
-        Optional<Car> carOpt = carRepository.findById(carId);
-        if (carOpt.isEmpty()) {
+    public void getCarHistory(@PathVariable Long carId,
+                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                              HttpServletResponse response) throws IOException {
+        JsonStreamWriter out = JsonStreamWriter.deferred(objectMapper, response, accept);
+        historyRepository.forEachEvent(new HistoryFilter(carId, from, to, null, null), row -> {
+            try {
+                out.write(toEvent(row));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        // an empty timeline is only a 404 when the car itself is missing
+        if (!out.isStarted() && !carRepository.cachedExistsById(carId)) {
+            throw new EntityNotFoundException("Car with ID " + carId + " not found");
+        }
+        out.close();
+    }
+
+    @GetMapping(value = "/cars/{carId}/history", params = "limit")
+    public ResponseEntity<?> getCarHistoryPage(
+            @PathVariable Long carId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String after,
+            @RequestParam int limit) {
+        Map<String, String> errors = new HashMap<>();
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            errors.put("limit", "must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Cursor cursor = null;
+        if (after != null) {
+            try {
+                cursor = Cursor.parse(after);
+            } catch (IllegalArgumentException e) {
+                errors.put("after", e.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            return ResponseEntity.badRequest().body(errors);
+        }
+
+        List<CarEventRow> rows = new ArrayList<>(limit + 1);
+        historyRepository.forEachEvent(new HistoryFilter(carId, from, to, cursor, limit + 1), rows::add);
+        if (rows.isEmpty() && cursor == null && !carRepository.cachedExistsById(carId)) {
             return ResponseEntity.notFound().build(); // 404: car not found
         }
-        List<CarEventDto> events = new ArrayList<>();
-        // Fetch policies
-        List<InsurancePolicy> policies = policyRepository.findByCarId(carId);
-        policies.forEach(policy -> events.add(new CarEventDto(
-                "POLICY",
-                policy.getStartDate(),
-                "Policy " + policy.getId() + " (" + policy.getProvider() + ") from " + policy.getStartDate() + " to " + policy.getEndDate()
-        )));
-        // Fetch claims
-        List<InsuranceClaim> claims = claimRepository.findByCarIdOrderByClaimDateAsc(carId);
-        claims.forEach(claim -> events.add(new CarEventDto(
-                "CLAIM",
-                claim.getClaimDate(),
-                "Claim " + claim.getId() + ": " + claim.getDescription() + " ($" + claim.getAmount() + ")"
-        )));
-        // Sort by event date
-        events.sort((e1, e2) -> e1.eventDate().compareTo(e2.eventDate()));
-        return ResponseEntity.ok(events);
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            nextCursor = Cursor.of(rows.get(limit - 1)).toString();
+        }
+        return ResponseEntity.ok(new CursorPage<>(rows.stream().map(this::toEvent).toList(), nextCursor));
     }
 
-    private CarDto toDto(Car c) {
-        var o = c.getOwner();
-        return new CarDto(c.getId(), c.getVin(), c.getMake(), c.getModel(), c.getYearOfManufacture(),
-                o != null ? o.getId() : null,
-                o != null ? o.getName() : null,
-                o != null ? o.getEmail() : null);
+    private CarEventDto toEvent(CarEventRow row) {
+        String description = CarEventRow.POLICY.equals(row.eventType())
+                ? "Policy " + row.refId() + " (" + row.provider() + ") from " + row.eventDate() + " to " + row.endDate()
+                : "Claim " + row.refId() + ": " + row.description() + " ($" + row.amount() + ")";
+        return new CarEventDto(row.eventType(), row.eventDate(), description);
+    }
+
+    private List<InsuranceValidityQuery> nextChunk(MappingIterator<InsuranceValidityQuery> queries) throws IOException {
+        List<InsuranceValidityQuery> chunk = new ArrayList<>(VALIDITY_BATCH_CHUNK);
+        while (chunk.size() < VALIDITY_BATCH_CHUNK && queries.hasNextValue()) {
+            chunk.add(queries.nextValue());
+        }
+        return chunk;
+    }
+
+    private List<InsuranceValidityResult> resolveValidity(List<InsuranceValidityQuery> chunk) {
+        LocalDate[] dates = new LocalDate[chunk.size()];
+        InsuranceValidityResult[] results = new InsuranceValidityResult[chunk.size()];
+        Set<Long> carIds = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            InsuranceValidityQuery q = chunk.get(i);
+            if (q.carId() == null || q.date() == null) {
+                results[i] = InsuranceValidityResult.error(q.carId(), q.date(), 400, "carId and date are required");
+                continue;
+            }
+            try {
+                dates[i] = LocalDate.parse(q.date());
+            } catch (DateTimeParseException e) {
+                results[i] = InsuranceValidityResult.error(q.carId(), q.date(), 400, "Invalid date format. Must be YYYY-MM-DD.");
+                continue;
+            }
+            if (dates[i].isBefore(MIN_DATE) || dates[i].isAfter(MAX_DATE)) {
+                results[i] = InsuranceValidityResult.error(q.carId(), q.date(), 400,
+                        "must be between " + MIN_DATE + " and " + MAX_DATE);
+                continue;
+            }
+            carIds.add(q.carId());
+        }
+
+        Map<Long, CoverageIntervals> coverage = service.coverageFor(carIds);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] != null) continue;
+            InsuranceValidityQuery q = chunk.get(i);
+            CoverageIntervals intervals = coverage.get(q.carId());
+            results[i] = intervals == null
+                    ? InsuranceValidityResult.error(q.carId(), q.date(), 404, "Car with ID " + q.carId() + " not found")
+                    : InsuranceValidityResult.of(q.carId(), dates[i].toString(), intervals.covers(dates[i].toEpochDay()));
+        }
+        return List.of(results);
     }
 
     public record InsuranceValidityResponse(Long carId, String date, boolean valid) {}
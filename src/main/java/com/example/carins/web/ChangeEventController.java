@@ -0,0 +1,114 @@
+package com.example.carins.web;
+
+import com.example.carins.repo.OutboxRepository;
+import com.example.carins.service.OutboxRelay;
+import com.example.carins.web.dto.ChangeEvent;
+import com.example.carins.web.dto.ChangeEventPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The change-event stream of policy and claim writes, in offset order. Waiting requests park on virtual threads
+// blocked in OutboxRelay.awaitAfter, not on request threads.
+@RestController
+@RequestMapping("/api/events")
+public class ChangeEventController {
+
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_WAIT_SECONDS = 60;
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxRelay relay;
+    private final Duration sseTimeout;
+    private final Duration heartbeat;
+
+    public ChangeEventController(OutboxRepository outboxRepository, OutboxRelay relay,
+                                 @Value("${carins.outbox.sse.timeout:PT30M}") Duration sseTimeout,
+                                 @Value("${carins.outbox.sse.heartbeat:PT15S}") Duration heartbeat) {
+        this.outboxRepository = outboxRepository;
+        this.relay = relay;
+        this.sseTimeout = sseTimeout;
+        this.heartbeat = heartbeat;
+    }
+
+    // Long poll: events after `after`, answered at once when there are any, otherwise as soon as one is
+    // relayed or with an empty page after waitSeconds
+    @GetMapping
+    public DeferredResult<ResponseEntity<?>> poll(@RequestParam(defaultValue = "0") long after,
+                                                  @RequestParam(defaultValue = "100") int limit,
+                                                  @RequestParam(defaultValue = "0") int waitSeconds) {
+        Map<String, String> errors = new HashMap<>();
+        if (after < 0) errors.put("after", "must not be negative");
+        if (limit < 1 || limit > MAX_LIMIT) errors.put("limit", "must be between 1 and " + MAX_LIMIT);
+        if (waitSeconds < 0 || waitSeconds > MAX_WAIT_SECONDS) {
+            errors.put("waitSeconds", "must be between 0 and " + MAX_WAIT_SECONDS);
+        }
+        Duration wait = Duration.ofSeconds(waitSeconds);
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(wait.plusSeconds(5).toMillis());
+        if (!errors.isEmpty()) {
+            result.setResult(ResponseEntity.badRequest().body(errors));
+            return result;
+        }
+        ChangeEventPage page = page(after, limit);
+        if (!page.events().isEmpty() || waitSeconds == 0) {
+            result.setResult(ResponseEntity.ok(page));
+            return result;
+        }
+        Thread.ofVirtual().name("change-events-poll").start(() -> {
+            try {
+                relay.awaitAfter(after, wait);
+                result.setResult(ResponseEntity.ok(page(after, limit)));
+            } catch (InterruptedException e) {
+                result.setResult(ResponseEntity.ok(new ChangeEventPage(List.of(), after)));
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
+
+    // Server-sent events from `after`, or from the Last-Event-ID a reconnecting client sends; the event id is
+    // the offset and the event name the change type
+    @GetMapping(value = "/stream", produces = "text/event-stream")
+    public SseEmitter stream(@RequestParam(defaultValue = "0") long after,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        long start = lastEventId != null ? lastEventId : after;
+        Thread.ofVirtual().name("change-events-sse").start(() -> {
+            long offset = start;
+            try {
+                while (true) {
+                    List<ChangeEvent> events = outboxRepository.findAfter(offset, MAX_LIMIT);
+                    for (ChangeEvent event : events) {
+                        emitter.send(SseEmitter.event().id(Long.toString(event.offset())).name(event.type().name()).data(event));
+                        offset = event.offset();
+                    }
+                    if (events.size() < MAX_LIMIT && !relay.awaitAfter(offset, heartbeat)) {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // client gone or emitter timed out
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                emitter.complete();
+            } catch (RuntimeException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    private ChangeEventPage page(long after, int limit) {
+        List<ChangeEvent> events = outboxRepository.findAfter(after, limit);
+        return new ChangeEventPage(events, events.isEmpty() ? after : events.get(events.size() - 1).offset());
+    }
+}
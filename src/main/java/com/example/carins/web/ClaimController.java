@@ -0,0 +1,114 @@
+package com.example.carins.web;
+
+import com.example.carins.model.ClaimAggregate.Scope;
+import com.example.carins.service.ClaimAggregates;
+import com.example.carins.service.ClaimIngestionService;
+import com.example.carins.service.ClaimWriteBehindQueue;
+import com.example.carins.web.dto.BulkClaimResult;
+import com.example.carins.web.dto.ClaimStats;
+import com.example.carins.web.dto.ClaimTrackingStatus;
+import com.example.carins.web.dto.InsuranceClaimDto;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class ClaimController {
+
+    private final ClaimIngestionService ingestionService;
+    private final ClaimWriteBehindQueue writeBehindQueue;
+    private final ClaimAggregates aggregates;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public ClaimController(ClaimIngestionService ingestionService, ClaimWriteBehindQueue writeBehindQueue,
+                           ClaimAggregates aggregates, ObjectMapper objectMapper,
+                           @Value("${carins.claims.bulk-chunk-size:500}") int chunkSize) {
+        this.ingestionService = ingestionService;
+        this.writeBehindQueue = writeBehindQueue;
+        this.aggregates = aggregates;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    // Outcome of a claim accepted with "Prefer: respond-async": PENDING, CREATED or FAILED
+    @GetMapping("/claims/tracking/{trackingId}")
+    public ResponseEntity<ClaimTrackingStatus> getTrackingStatus(@PathVariable String trackingId) {
+        return writeBehindQueue.status(trackingId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Claim count and amount total, read from the pre-aggregated rollups; zero when nothing was claimed
+    @GetMapping("/claims/stats/cars/{carId}")
+    public ClaimStats getCarStats(@PathVariable long carId) {
+        return aggregates.stats(Scope.CAR, carId);
+    }
+
+    @GetMapping("/claims/stats/owners/{ownerId}")
+    public ClaimStats getOwnerStats(@PathVariable long ownerId) {
+        return aggregates.stats(Scope.OWNER, ownerId);
+    }
+
+    @GetMapping("/claims/stats/months/{month}")
+    public ClaimStats getMonthStats(@PathVariable @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        return aggregates.stats(Scope.MONTH, month.getYear() * 100L + month.getMonthValue());
+    }
+
+    // Recomputes all rollups from insuranceclaim; claim writes on any node only pause while it opens its snapshots
+    // and while it swaps the table
+    @PostMapping("/claims/stats/rebuild")
+    public Map<String, Object> rebuildStats() {
+        long started = System.nanoTime();
+        int rows = aggregates.rebuild();
+        Map<String, Object> result = new HashMap<>();
+        result.put("rows", rows);
+        result.put("elapsedMillis", (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    // Body is a JSON array or NDJSON of claims; one result per record is streamed back as each chunk is stored
+    @PostMapping(value = "/claims/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public void registerClaims(InputStream body,
+                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                               HttpServletResponse response) throws IOException {
+        try (MappingIterator<InsuranceClaimDto> claims =
+                     objectMapper.readerFor(InsuranceClaimDto.class).readValues(body)) {
+            List<InsuranceClaimDto> chunk = nextChunk(claims);
+            long index = 0;
+            try (JsonStreamWriter out = JsonStreamWriter.start(objectMapper, response, accept)) {
+                while (!chunk.isEmpty()) {
+                    for (BulkClaimResult result : ingestionService.ingestChunk(index, chunk)) {
+                        out.write(result);
+                    }
+                    index += chunk.size();
+                    chunk = nextChunk(claims);
+                }
+            }
+        }
+    }
+
+    private List<InsuranceClaimDto> nextChunk(MappingIterator<InsuranceClaimDto> claims) throws IOException {
+        List<InsuranceClaimDto> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && claims.hasNextValue()) {
+            chunk.add(claims.nextValue());
+        }
+        return chunk;
+    }
+}
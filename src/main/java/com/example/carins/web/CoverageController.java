@@ -0,0 +1,81 @@
+package com.example.carins.web;
+
+import com.example.carins.service.CoverageAnalyzer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class CoverageController {
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(2100, 12, 31);
+
+    private final CoverageAnalyzer analyzer;
+    private final ObjectMapper objectMapper;
+
+    public CoverageController(CoverageAnalyzer analyzer, ObjectMapper objectMapper) {
+        this.analyzer = analyzer;
+        this.objectMapper = objectMapper;
+    }
+
+    // Merged coverage spans and uninsured gaps of one car between from and to (both inclusive)
+    @GetMapping("/cars/{carId}/coverage")
+    public ResponseEntity<?> getCoverage(@PathVariable Long carId,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Map<String, String> errors = validateRange(from, to);
+        if (!errors.isEmpty()) return ResponseEntity.badRequest().body(errors);
+        return ResponseEntity.ok(analyzer.report(carId, from, to));
+    }
+
+    // Every uninsured stretch of every car in the range, streamed as a JSON array (or NDJSON) in car id order
+    @GetMapping("/coverage/gaps")
+    public void getFleetGaps(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                             HttpServletResponse response) throws IOException {
+        Map<String, String> errors = validateRange(from, to);
+        if (!errors.isEmpty()) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), errors);
+            return;
+        }
+        try (JsonStreamWriter out = JsonStreamWriter.start(objectMapper, response, accept)) {
+            analyzer.scanGaps(from, to, gap -> {
+                try {
+                    out.write(gap);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static Map<String, String> validateRange(LocalDate from, LocalDate to) {
+        Map<String, String> errors = new HashMap<>();
+        if (from.isBefore(MIN_DATE) || from.isAfter(MAX_DATE)) {
+            errors.put("from", "must be between " + MIN_DATE + " and " + MAX_DATE);
+        }
+        if (to.isBefore(MIN_DATE) || to.isAfter(MAX_DATE)) {
+            errors.put("to", "must be between " + MIN_DATE + " and " + MAX_DATE);
+        }
+        if (errors.isEmpty() && to.isBefore(from)) {
+            errors.put("to", "must not be before from");
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.carins.web;
+
+import com.example.carins.export.ExportFormat;
+import com.example.carins.export.RowSink;
+import com.example.carins.repo.ExportRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private final ExportRepository exportRepository;
+    private final ObjectMapper objectMapper;
+    // an extract keeps its pooled connection until the client has downloaded the last row, so only this many
+    // run at once and the rest of the pool stays free for regular requests
+    private final Semaphore running;
+
+    public ExportController(ExportRepository exportRepository, ObjectMapper objectMapper,
+                            @Value("${carins.export.max-concurrent:2}") int maxConcurrent) {
+        this.exportRepository = exportRepository;
+        this.objectMapper = objectMapper;
+        this.running = new Semaphore(maxConcurrent);
+    }
+
+    // Policies active somewhere in [from, to], optionally of one provider, as CSV or columnar binary
+    @GetMapping("/policies")
+    public void exportPolicies(@RequestParam(defaultValue = "csv") String format,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                               @RequestParam(required = false) String provider,
+                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                               HttpServletResponse response) throws IOException {
+        String providerFilter = provider == null || provider.isBlank() ? null : provider.trim();
+        export("policies", format, from, to, acceptEncoding, response,
+                sink -> exportRepository.exportPolicies(from, to, providerFilter, sink));
+    }
+
+    // Claims dated in [from, to] as CSV or columnar binary
+    @GetMapping("/claims")
+    public void exportClaims(@RequestParam(defaultValue = "csv") String format,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                             HttpServletResponse response) throws IOException {
+        export("claims", format, from, to, acceptEncoding, response,
+                sink -> exportRepository.exportClaims(from, to, sink));
+    }
+
+    private void export(String name, String format, LocalDate from, LocalDate to, String acceptEncoding,
+                        HttpServletResponse response, Function<RowSink, Long> extract) throws IOException {
+        Map<String, String> errors = new HashMap<>();
+        ExportFormat exportFormat = null;
+        try {
+            exportFormat = ExportFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            errors.put("format", "must be csv or columnar");
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            errors.put("to", "must not be before from");
+        }
+        if (!errors.isEmpty()) {
+            writeError(response, HttpStatus.BAD_REQUEST, errors);
+            return;
+        }
+        if (!running.tryAcquire()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            writeError(response, HttpStatus.SERVICE_UNAVAILABLE, Map.of("error", "Too many exports running, retry later"));
+            return;
+        }
+        try {
+            write(name, exportFormat, acceptsGzip(acceptEncoding), response, extract);
+        } finally {
+            running.release();
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, Map<String, String> body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private static void write(String name, ExportFormat exportFormat, boolean gzip, HttpServletResponse response,
+                              Function<RowSink, Long> extract) throws IOException {
+        response.setContentType(exportFormat.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + name + "." + exportFormat.extension() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        OutputStream body = response.getOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(body, 64 * 1024) : body) {
+            extract.apply(exportFormat.open(out));
+        }
+    }
+
+    // gzip when Accept-Encoding lists it, or "*", with a non-zero q; an explicit "gzip;q=0" refuses it
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = quality(parts) > 0;
+            if (coding.equals("gzip") || coding.equals("x-gzip")) return accepted;
+            if (coding.equals("*")) wildcard = accepted;
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.length() > 2 && Character.toLowerCase(param.charAt(0)) == 'q' && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
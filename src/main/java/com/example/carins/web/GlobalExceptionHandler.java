@@ -1,9 +1,13 @@
 package com.example.carins.web;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -48,4 +52,21 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleEntityNotFound(EntityNotFoundException ex) {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
     }
-}
\ No newline at end of file
+
+    // malformed JSON in streamed request bodies read directly by a handler
+    @ExceptionHandler(JsonProcessingException.class)
+    public ResponseEntity<Map<String, String>> handleMalformedJson(JsonProcessingException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("body", "Malformed JSON: " + ex.getOriginalMessage());
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    // no pooled database connection within spring.datasource.hikari.connection-timeout: the caller should back off
+    // and retry (JDBC and JPA reads outside a transaction surface it as a DataAccessResourceFailureException)
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Map<String, String>> handleNoConnection(Exception ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("error", "Database busy, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(errors);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.carins.web;
+
+import com.example.carins.service.FleetImportService;
+import com.example.carins.web.dto.ImportProgress;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.PayloadTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/imports")
+public class ImportController {
+
+    private final FleetImportService importService;
+
+    public ImportController(FleetImportService importService) {
+        this.importService = importService;
+    }
+
+    // CSV of owners, cars and optional policies (see FleetImportService); answers 202 with the job's progress,
+    // 413 for a body over carins.import.max-upload-size (up front when Content-Length says so)
+    @PostMapping(consumes = "text/csv")
+    public ResponseEntity<?> submit(InputStream body,
+                                    @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength)
+            throws IOException {
+        ImportProgress progress;
+        try {
+            if (contentLength != null && contentLength > importService.maxUploadBytes()) {
+                throw new PayloadTooLargeException(null);
+            }
+            progress = importService.submit(body);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> errors = new HashMap<>();
+            errors.put("header", e.getMessage());
+            return ResponseEntity.badRequest().body(errors);
+        } catch (PayloadTooLargeException e) {
+            Map<String, String> errors = new HashMap<>();
+            errors.put("body", "must not exceed " + importService.maxUploadBytes() + " bytes");
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errors);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/api/imports/" + progress.id()))
+                .body(progress);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportProgress> getProgress(@PathVariable String id) {
+        return importService.progress(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Rows refused so far: line, the uploaded fields and the reason
+    @GetMapping("/{id}/rejects")
+    public void getRejects(@PathVariable String id, HttpServletResponse response) throws IOException {
+        Optional<Path> rejects = importService.rejectFile(id);
+        if (rejects.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        response.setContentType("text/csv");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + id + "-rejects.csv\"");
+        Files.copy(rejects.get(), response.getOutputStream());
+    }
+}
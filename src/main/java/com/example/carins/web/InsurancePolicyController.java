@@ -2,43 +2,88 @@ package com.example.carins.web;
 
 import com.example.carins.model.Car;
 import com.example.carins.model.InsurancePolicy;
+import com.example.carins.model.OutboxEvent;
 import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.PolicySpan;
+import com.example.carins.service.Outbox;
+import com.example.carins.service.PolicyChangedEvent;
+import com.example.carins.service.PolicyExpiryWheel;
+import com.example.carins.service.PolicyOverlapIndex;
 import com.example.carins.web.dto.InsurancePolicyDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api")
 public class InsurancePolicyController {
 
+    private static final Logger logger = LoggerFactory.getLogger(InsurancePolicyController.class);
+    static final String OVERLAPS_HEADER = "Policy-Overlaps";
+
     private final InsurancePolicyRepository policyRepository;
     private final CarRepository carRepository;
+    private final PolicyOverlapIndex overlapIndex;
+    private final PolicyExpiryWheel expiryWheel;
+    private final ApplicationEventPublisher events;
+    private final Outbox outbox;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
 
-    public InsurancePolicyController(InsurancePolicyRepository policyRepository, CarRepository carRepository) {
+    public InsurancePolicyController(InsurancePolicyRepository policyRepository, CarRepository carRepository,
+                                     PolicyOverlapIndex overlapIndex, PolicyExpiryWheel expiryWheel,
+                                     ApplicationEventPublisher events,
+                                     Outbox outbox, TransactionTemplate transactionTemplate, ObjectMapper objectMapper) {
         this.policyRepository = policyRepository;
         this.carRepository = carRepository;
+        this.overlapIndex = overlapIndex;
+        this.expiryWheel = expiryWheel;
+        this.events = events;
+        this.outbox = outbox;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/policies")
-    public ResponseEntity<InsurancePolicyDto> createPolicy(@Valid @RequestBody InsurancePolicyDto policyDto) {
+    public ResponseEntity<?> createPolicy(@Valid @RequestBody InsurancePolicyDto policyDto) {
         Optional<Car> carOpt = carRepository.findById(policyDto.carId());
         if (carOpt.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         Car car = carOpt.get();
 
-        InsurancePolicy policy = new InsurancePolicy(car, policyDto.provider(), policyDto.startDate(), policyDto.endDate());
-        InsurancePolicy saved = policyRepository.save(policy);
-        // return DTO to avoid serialization of entity graph
-        return ResponseEntity.ok(InsurancePolicyDto.fromEntity(saved));
+        return overlapIndex.withCarsLocked(car.getId(), null, () -> {
+            List<PolicySpan> overlaps = overlapIndex.findOverlaps(car.getId(), policyDto.startDate(), policyDto.endDate(), null);
+            if (!overlaps.isEmpty() && overlapIndex.mode() == PolicyOverlapIndex.Mode.REJECT) {
+                return overlapConflict(overlaps);
+            }
+            InsurancePolicy policy = new InsurancePolicy(car, policyDto.provider(), policyDto.startDate(), policyDto.endDate());
+            InsurancePolicy saved = save(policy, OutboxEvent.Type.POLICY_CREATED);
+            events.publishEvent(new PolicyChangedEvent(saved.getId(), car.getId(), null));
+            // return DTO to avoid serialization of entity graph
+            return flagged(saved.getId(), overlaps).body(InsurancePolicyDto.fromEntity(saved));
+        });
     }
 
     @PutMapping("/policies/{id}")
-    public ResponseEntity<InsurancePolicyDto> updatePolicy(@PathVariable Long id, @Valid @RequestBody InsurancePolicyDto policyDto) {
+    public ResponseEntity<?> updatePolicy(@PathVariable Long id, @Valid @RequestBody InsurancePolicyDto policyDto) {
         Optional<InsurancePolicy> existingOpt = policyRepository.findById(id);
         if (existingOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -50,11 +95,69 @@ public class InsurancePolicyController {
         Car car = carOpt.get();
 
         InsurancePolicy existing = existingOpt.get();
-        existing.setCar(car);
-        existing.setProvider(policyDto.provider());
-        existing.setStartDate(policyDto.startDate());
-        existing.setEndDate(policyDto.endDate());
-        InsurancePolicy saved = policyRepository.save(existing);
-        return ResponseEntity.ok(InsurancePolicyDto.fromEntity(saved));
-    }
-}
\ No newline at end of file
+        Long previousCarId = existing.getCar() != null ? existing.getCar().getId() : null;
+        return overlapIndex.withCarsLocked(car.getId(), previousCarId, () -> {
+            List<PolicySpan> overlaps = overlapIndex.findOverlaps(car.getId(), policyDto.startDate(), policyDto.endDate(), id);
+            if (!overlaps.isEmpty() && overlapIndex.mode() == PolicyOverlapIndex.Mode.REJECT) {
+                return overlapConflict(overlaps);
+            }
+            existing.setCar(car);
+            existing.setProvider(policyDto.provider());
+            existing.setStartDate(policyDto.startDate());
+            existing.setEndDate(policyDto.endDate());
+            InsurancePolicy saved = save(existing, OutboxEvent.Type.POLICY_UPDATED);
+            events.publishEvent(new PolicyChangedEvent(saved.getId(), car.getId(), previousCarId));
+            return flagged(saved.getId(), overlaps).body(InsurancePolicyDto.fromEntity(saved));
+        });
+    }
+
+    // Every pair of policies of the same car sharing at least one day, streamed as a JSON array (or NDJSON)
+    @GetMapping("/policies/overlaps")
+    public void getOverlaps(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                            HttpServletResponse response) throws IOException {
+        try (JsonStreamWriter out = JsonStreamWriter.start(objectMapper, response, accept)) {
+            overlapIndex.scanFleet(overlap -> {
+                try {
+                    out.write(overlap);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    // Policies ending between today and withinDays days from now, soonest first
+    @GetMapping("/policies/expiring")
+    public ResponseEntity<?> getExpiring(@RequestParam(defaultValue = "30") int withinDays) {
+        if (withinDays < 0 || withinDays > PolicyExpiryWheel.MAX_LOOKAHEAD_DAYS) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("withinDays", "must be between 0 and " + PolicyExpiryWheel.MAX_LOOKAHEAD_DAYS));
+        }
+        return ResponseEntity.ok(expiryWheel.expiringWithin(LocalDate.now(), withinDays));
+    }
+
+    // the policy row and its change event commit together
+    private InsurancePolicy save(InsurancePolicy policy, OutboxEvent.Type eventType) {
+        return transactionTemplate.execute(status -> {
+            InsurancePolicy saved = policyRepository.save(policy);
+            outbox.append(eventType, saved.getId(), InsurancePolicyDto.fromEntity(saved));
+            return saved;
+        });
+    }
+
+    private ResponseEntity<Map<String, Object>> overlapConflict(List<PolicySpan> overlaps) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", "Policy period overlaps existing coverage for this car");
+        body.put("overlappingPolicyIds", overlaps.stream().map(PolicySpan::id).toList());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    // in flag mode the write goes through and the overlapping policy ids are reported in a header
+    private ResponseEntity.BodyBuilder flagged(Long policyId, List<PolicySpan> overlaps) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (overlaps.isEmpty()) return ok;
+        List<String> ids = overlaps.stream().map(span -> span.id().toString()).toList();
+        logger.warn("Policy {} overlaps policies {} of the same car", policyId, ids);
+        return ok.header(OVERLAPS_HEADER, String.join(",", ids));
+    }
+}
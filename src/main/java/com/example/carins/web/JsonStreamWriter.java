@@ -0,0 +1,73 @@
+package com.example.carins.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Writes a response body item by item, either as one JSON array or as NDJSON (one document per line),
+// so large results never have to be collected in memory first.
+public final class JsonStreamWriter implements Closeable {
+
+    private static final int FLUSH_EVERY = 256;
+
+    private final ObjectMapper mapper;
+    private final HttpServletResponse response;
+    private final boolean ndjson;
+    private JsonGenerator generator;
+    private int unflushed;
+
+    private JsonStreamWriter(ObjectMapper mapper, HttpServletResponse response, String accept) {
+        this.mapper = mapper;
+        this.response = response;
+        this.ndjson = acceptsNdjson(accept);
+    }
+
+    public static boolean acceptsNdjson(String accept) {
+        return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+
+    public static JsonStreamWriter start(ObjectMapper mapper, HttpServletResponse response, String accept) throws IOException {
+        JsonStreamWriter writer = new JsonStreamWriter(mapper, response, accept);
+        writer.begin();
+        return writer;
+    }
+
+    // Commits the response only on the first write (or close), leaving room to fail with an error status before that
+    public static JsonStreamWriter deferred(ObjectMapper mapper, HttpServletResponse response, String accept) {
+        return new JsonStreamWriter(mapper, response, accept);
+    }
+
+    public boolean isStarted() {
+        return generator != null;
+    }
+
+    private void begin() throws IOException {
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        generator = mapper.createGenerator(response.getOutputStream());
+        generator.setRootValueSeparator(null);
+        if (!ndjson) generator.writeStartArray();
+    }
+
+    public void write(Object item) throws IOException {
+        if (generator == null) begin();
+        generator.writeObject(item);
+        if (ndjson) generator.writeRaw('\n');
+        if (++unflushed >= FLUSH_EVERY) {
+            generator.flush();
+            unflushed = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (generator == null) begin();
+        if (!ndjson) generator.writeEndArray();
+        generator.close();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.carins.web;
+
+import com.example.carins.config.StatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Records how many Hibernate statements each request ran (carins.http.statements, by method and uri template),
+// so an N+1 regression shows up as a jump in the distribution and a warning in the log
+@Component
+public class StatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementMetricsFilter.class);
+
+    private final StatementCounter statementCounter;
+    private final MeterRegistry meterRegistry;
+    private final int warnThreshold;
+
+    public StatementMetricsFilter(StatementCounter statementCounter, MeterRegistry meterRegistry,
+                                  @Value("${carins.metrics.statement-warn-threshold:50}") int warnThreshold) {
+        this.statementCounter = statementCounter;
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        statementCounter.reset();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int statements = statementCounter.count();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            DistributionSummary.builder("carins.http.statements")
+                    .description("Hibernate SQL statements per request")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .register(meterRegistry)
+                    .record(statements);
+            if (statements > warnThreshold) {
+                logger.warn("{} {} ran {} SQL statements", request.getMethod(), uri, statements);
+            }
+        }
+    }
+}
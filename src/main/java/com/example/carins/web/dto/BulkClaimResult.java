@@ -0,0 +1,16 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// index is the 0-based position of the record in the uploaded stream; either id or error is set
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkClaimResult(long index, Long carId, Long id, String error) {
+
+    public static BulkClaimResult created(long index, Long carId, Long id) {
+        return new BulkClaimResult(index, carId, id, null);
+    }
+
+    public static BulkClaimResult rejected(long index, Long carId, String error) {
+        return new BulkClaimResult(index, carId, null, error);
+    }
+}
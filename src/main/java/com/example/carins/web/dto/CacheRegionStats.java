@@ -0,0 +1,9 @@
+package com.example.carins.web.dto;
+
+public record CacheRegionStats(String region, long hits, long misses, long puts, long size) {
+
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.carins.web.dto;
+
+import com.example.carins.model.OutboxEvent;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+// payload is the written policy or claim as returned by its endpoint (InsurancePolicyDto / InsuranceClaimDto)
+public record ChangeEvent(long offset, OutboxEvent.Type type, String aggregate, long aggregateId, Instant occurredAt,
+                          @JsonRawValue String payload) {}
@@ -0,0 +1,6 @@
+package com.example.carins.web.dto;
+
+import java.util.List;
+
+// nextOffset is the `after` value for the next request: the last event's offset, or the requested one when empty
+public record ChangeEventPage(List<ChangeEvent> events, long nextOffset) {}
@@ -0,0 +1,8 @@
+package com.example.carins.web.dto;
+
+import com.example.carins.model.ClaimAggregate;
+
+import java.math.BigDecimal;
+
+// key is the car id, owner id or yyyyMM month depending on scope
+public record ClaimStats(ClaimAggregate.Scope scope, long key, long claimCount, BigDecimal totalAmount) {}
@@ -0,0 +1,20 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// status is PENDING, CREATED (claimId set) or FAILED (error set)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ClaimTrackingStatus(String trackingId, String status, Long claimId, String error) {
+
+    public static ClaimTrackingStatus pending(String trackingId) {
+        return new ClaimTrackingStatus(trackingId, "PENDING", null, null);
+    }
+
+    public static ClaimTrackingStatus created(String trackingId, Long claimId) {
+        return new ClaimTrackingStatus(trackingId, "CREATED", claimId, null);
+    }
+
+    public static ClaimTrackingStatus failed(String trackingId, String error) {
+        return new ClaimTrackingStatus(trackingId, "FAILED", null, error);
+    }
+}
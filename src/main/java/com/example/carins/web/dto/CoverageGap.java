@@ -0,0 +1,11 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+// One uninsured stretch of a car, as streamed by the fleet gap report
+public record CoverageGap(Long carId,
+                          @JsonFormat(pattern = "yyyy-MM-dd") LocalDate start,
+                          @JsonFormat(pattern = "yyyy-MM-dd") LocalDate end,
+                          long days) {}
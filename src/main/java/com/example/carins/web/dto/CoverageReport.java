@@ -0,0 +1,13 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Merged coverage of one car over [from, to] and the uninsured gaps between it
+public record CoverageReport(Long carId,
+                             @JsonFormat(pattern = "yyyy-MM-dd") LocalDate from,
+                             @JsonFormat(pattern = "yyyy-MM-dd") LocalDate to,
+                             long coveredDays, long uncoveredDays,
+                             List<CoverageSpan> coverage, List<CoverageSpan> gaps) {}
@@ -0,0 +1,15 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+// Inclusive day range; days counts both ends
+public record CoverageSpan(@JsonFormat(pattern = "yyyy-MM-dd") LocalDate start,
+                           @JsonFormat(pattern = "yyyy-MM-dd") LocalDate end,
+                           long days) {
+
+    public static CoverageSpan ofEpochDays(long start, long end) {
+        return new CoverageSpan(LocalDate.ofEpochDay(start), LocalDate.ofEpochDay(end), end - start + 1);
+    }
+}
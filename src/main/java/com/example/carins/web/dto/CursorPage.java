@@ -0,0 +1,6 @@
+package com.example.carins.web.dto;
+
+import java.util.List;
+
+// nextCursor is null on the last page; pass it back as the "after" parameter to continue
+public record CursorPage<T>(List<T> items, String nextCursor) {}
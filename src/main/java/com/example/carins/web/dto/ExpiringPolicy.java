@@ -0,0 +1,15 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+// A policy ending within the requested lookahead; daysLeft is 0 for a policy ending today
+public record ExpiringPolicy(Long policyId, Long carId,
+                             @JsonFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+                             long daysLeft) {
+
+    public static ExpiringPolicy of(Long policyId, Long carId, LocalDate endDate, LocalDate today) {
+        return new ExpiringPolicy(policyId, carId, endDate, endDate.toEpochDay() - today.toEpochDay());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+// rowsRead counts records parsed so far; rowsImported and rowsRejected only move once a chunk is written
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportProgress(String id, Status status,
+                             long rowsRead, long rowsImported, long rowsRejected,
+                             long ownersCreated, long carsCreated, long policiesCreated,
+                             Instant startedAt, Instant finishedAt, long elapsedMillis, double rowsPerSecond,
+                             String error) {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+}
@@ -0,0 +1,4 @@
+package com.example.carins.web.dto;
+
+// date is kept as text so one malformed entry yields an error result instead of failing the whole batch
+public record InsuranceValidityQuery(Long carId, String date) {}
@@ -0,0 +1,16 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// status mirrors what the single-pair endpoint would answer: 200, 400 or 404
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record InsuranceValidityResult(Long carId, String date, Boolean valid, int status, String error) {
+
+    public static InsuranceValidityResult of(Long carId, String date, boolean valid) {
+        return new InsuranceValidityResult(carId, date, valid, 200, null);
+    }
+
+    public static InsuranceValidityResult error(Long carId, String date, int status, String error) {
+        return new InsuranceValidityResult(carId, date, null, status, error);
+    }
+}
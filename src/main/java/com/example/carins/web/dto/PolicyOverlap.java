@@ -0,0 +1,10 @@
+package com.example.carins.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+// Two policies of the same car covering the days overlapStart..overlapEnd; policyId starts first
+public record PolicyOverlap(Long carId, Long policyId, Long otherPolicyId,
+                            @JsonFormat(pattern = "yyyy-MM-dd") LocalDate overlapStart,
+                            @JsonFormat(pattern = "yyyy-MM-dd") LocalDate overlapEnd) {}
@@ -4,9 +4,14 @@ import com.example.carins.model.Car;
 import com.example.carins.model.InsuranceClaim;
 import com.example.carins.model.InsurancePolicy;
 import com.example.carins.model.Owner;
+import com.example.carins.repo.CarHistoryRepository;
 import com.example.carins.repo.CarRepository;
 import com.example.carins.repo.InsuranceClaimRepository;
 import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.repo.projection.CarEventRow;
+import com.example.carins.repo.projection.InsuranceStatus;
+import com.example.carins.repo.projection.PolicyPeriod;
+import com.example.carins.web.dto.CarDto;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -19,9 +24,13 @@ import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -44,6 +53,9 @@ public class CarControllerTest {
     @MockitoBean
     private InsuranceClaimRepository claimRepository;
 
+    @MockitoBean
+    private CarHistoryRepository historyRepository;
+
     //task 2 tests
     @Test
     void registerClaim_withValidData_succeeds() throws Exception {
@@ -126,27 +138,14 @@ public class CarControllerTest {
 
     @Test
     void getCarHistory_withValidCarId_succeeds() throws Exception {
-        // Setup Car with a mock ID using reflection
-        Car car = new Car("VIN12345", "Dacia", "Logan", 2018, new Owner("Ana", "ana@example.com"));
-        Field carIdField = Car.class.getDeclaredField("id");
-        carIdField.setAccessible(true);
-        carIdField.set(car, 1L);
-
-        when(carRepository.findById(1L)).thenReturn(Optional.of(car));
-
-        // Setup Policy and Claim with simulated IDs using reflection
-        InsurancePolicy policy = new InsurancePolicy(car, "Allianz", LocalDate.parse("2024-01-01"), LocalDate.parse("2024-12-31"));
-        Field policyIdField = InsurancePolicy.class.getDeclaredField("id");
-        policyIdField.setAccessible(true);
-        policyIdField.set(policy, 1L);
-
-        InsuranceClaim claim = new InsuranceClaim(car, LocalDate.parse("2024-06-15"), "Collision", BigDecimal.valueOf(1500));
-        Field claimIdField = InsuranceClaim.class.getDeclaredField("id");
-        claimIdField.setAccessible(true);
-        claimIdField.set(claim, 1L);
-
-        when(policyRepository.findByCarId(1L)).thenReturn(Collections.singletonList(policy));
-        when(claimRepository.findByCarIdOrderByClaimDateAsc(1L)).thenReturn(Collections.singletonList(claim));
+        doAnswer(invocation -> {
+            Consumer<CarEventRow> action = invocation.getArgument(1);
+            action.accept(new CarEventRow("POLICY", LocalDate.parse("2024-01-01"), 1L, "Allianz",
+                    LocalDate.parse("2024-12-31"), null, null));
+            action.accept(new CarEventRow("CLAIM", LocalDate.parse("2024-06-15"), 1L, null, null,
+                    "Collision", BigDecimal.valueOf(1500)));
+            return null;
+        }).when(historyRepository).forEachEvent(any(), any());
 
         mockMvc.perform(get("/api/cars/1/history"))
                 .andExpect(status().isOk())
@@ -160,22 +159,34 @@ public class CarControllerTest {
 
     @Test
     void getCarHistory_withInvalidCarId_returnsNotFound() throws Exception {
-        when(carRepository.findById(999L)).thenReturn(Optional.empty());
+        when(carRepository.cachedExistsById(999L)).thenReturn(false);
 
         mockMvc.perform(get("/api/cars/999/history"))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getCarHistory_withLimit_returnsCursorOfLastEvent() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<CarEventRow> action = invocation.getArgument(1);
+            action.accept(new CarEventRow("POLICY", LocalDate.parse("2024-01-01"), 1L, "Allianz",
+                    LocalDate.parse("2024-12-31"), null, null));
+            action.accept(new CarEventRow("CLAIM", LocalDate.parse("2024-06-15"), 3L, null, null,
+                    "Collision", BigDecimal.valueOf(1500)));
+            return null;
+        }).when(historyRepository).forEachEvent(any(), any());
+
+        mockMvc.perform(get("/api/cars/1/history?limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].eventType").value("POLICY"))
+                .andExpect(jsonPath("$.nextCursor").value("2024-01-01_0_1"));
+    }
+
     //task 3 tests
     @Test
     void isInsuranceValid_withValidData_succeeds() throws Exception {
-        Car car = new Car("VIN12345", "Dacia", "Logan", 2018, new Owner("Ana", "ana@example.com"));
-        Field carIdField = Car.class.getDeclaredField("id");
-        carIdField.setAccessible(true);
-        carIdField.set(car, 1L);
-
-        when(carRepository.findById(1L)).thenReturn(Optional.of(car));
-        when(policyRepository.existsActiveOnDate(1L, LocalDate.parse("2025-09-10"))).thenReturn(true);
+        when(policyRepository.findInsuranceStatus(1L, LocalDate.parse("2025-09-10"))).thenReturn(InsuranceStatus.INSURED);
 
         mockMvc.perform(get("/api/cars/1/insurance-valid?date=2025-09-10"))
                 .andExpect(status().isOk())
@@ -186,7 +197,7 @@ public class CarControllerTest {
 
     @Test
     void isInsuranceValid_withInvalidCarId_returnsNotFound() throws Exception {
-        when(carRepository.findById(999L)).thenReturn(Optional.empty());
+        when(policyRepository.findInsuranceStatus(999L, LocalDate.parse("2025-09-10"))).thenReturn(InsuranceStatus.CAR_NOT_FOUND);
 
         mockMvc.perform(get("/api/cars/999/insurance-valid?date=2025-09-10"))
                 .andExpect(status().isNotFound());
@@ -212,4 +223,51 @@ public class CarControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.date").value("must be between 1900-01-01 and 2100-12-31"));
     }
+
+    @Test
+    void isInsuranceValidBatch_resolvesEachPair() throws Exception {
+        when(carRepository.findExistingIds(any())).thenReturn(List.of(1L));
+        when(policyRepository.findPeriodsByCarIdIn(any())).thenReturn(List.of(
+                new PolicyPeriod(1L, LocalDate.parse("2025-01-01"), LocalDate.parse("2025-12-31"))));
+
+        String ndjson = """
+                {"carId": 1, "date": "2025-09-10"}
+                {"carId": 1, "date": "2024-09-10"}
+                {"carId": 999, "date": "2025-09-10"}
+                {"carId": 1, "date": "2125-09-10"}
+                {"carId": 1, "date": "09-10-2025"}
+                """;
+
+        mockMvc.perform(post("/api/cars/insurance-valid/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].valid").value(true))
+                .andExpect(jsonPath("$[1].valid").value(false))
+                .andExpect(jsonPath("$[2].status").value(404))
+                .andExpect(jsonPath("$[2].error").value("Car with ID 999 not found"))
+                .andExpect(jsonPath("$[3].status").value(400))
+                .andExpect(jsonPath("$[3].error").value("must be between 1900-01-01 and 2100-12-31"))
+                .andExpect(jsonPath("$[4].error").value("Invalid date format. Must be YYYY-MM-DD."));
+    }
+
+    @Test
+    void getCars_withLimit_returnsPageAndCursor() throws Exception {
+        when(carRepository.findDtosAfter(eq(0L), any())).thenReturn(List.of(
+                new CarDto(1L, "VIN12345", "Dacia", "Logan", 2018, 1L, "Ana", "ana@example.com"),
+                new CarDto(2L, "VIN67890", "VW", "Golf", 2021, 2L, "Bogdan", "bogdan@example.com")));
+
+        mockMvc.perform(get("/api/cars?limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].vin").value("VIN12345"))
+                .andExpect(jsonPath("$.nextCursor").value("1"));
+    }
+
+    @Test
+    void getCars_withOutOfRangeLimit_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/cars?limit=0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.limit").value("must be between 1 and 1000"));
+    }
 }
\ No newline at end of file
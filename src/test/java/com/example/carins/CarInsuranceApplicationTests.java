@@ -1,11 +1,18 @@
 package com.example.carins;
 
+import com.example.carins.repo.CarHistoryRepository;
+import com.example.carins.repo.CarHistoryRepository.HistoryFilter;
+import com.example.carins.repo.projection.CarEventRow;
 import com.example.carins.service.CarService;
+import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,10 +22,49 @@ class CarInsuranceApplicationTests {
     @Autowired
     CarService service;
 
+    @Autowired
+    CarHistoryRepository historyRepository;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
     @Test
     void insuranceValidityBasic() {
         assertTrue(service.isInsuranceValid(1L, LocalDate.parse("2024-06-01")));
         assertTrue(service.isInsuranceValid(1L, LocalDate.parse("2025-06-01")));
         assertFalse(service.isInsuranceValid(2L, LocalDate.parse("2025-02-01")));
+        assertThrows(EntityNotFoundException.class, () -> service.isInsuranceValid(999L, LocalDate.parse("2025-06-01")));
+    }
+
+    @Test
+    void carsArePagedByIdAfterCursor() {
+        var first = service.listCarsAfter(0, 1);
+        assertEquals(1, first.size());
+        var rest = service.listCarsAfter(first.get(0).id(), 10);
+        assertFalse(rest.isEmpty());
+        assertTrue(rest.get(0).id() > first.get(0).id());
+        assertNotNull(rest.get(0).ownerName());
+    }
+
+    @Test
+    void historyIsMergedInDateOrderAndFiltered() {
+        List<CarEventRow> events = new ArrayList<>();
+        historyRepository.forEachEvent(new HistoryFilter(1L, null, LocalDate.parse("2024-12-31"), null, null), events::add);
+        assertEquals(List.of("POLICY", "CLAIM"), events.stream().map(CarEventRow::eventType).toList());
+        assertEquals(LocalDate.parse("2024-06-15"), events.get(1).eventDate());
+
+        List<CarEventRow> rest = new ArrayList<>();
+        historyRepository.forEachEvent(new HistoryFilter(1L, null, LocalDate.parse("2024-12-31"),
+                CarHistoryRepository.Cursor.of(events.get(0)), 10), rest::add);
+        assertEquals(1, rest.size());
+        assertEquals("CLAIM", rest.get(0).eventType());
+    }
+
+    @Test
+    void idSequencesAllocateConfiguredBlocks() {
+        for (String sequence : List.of("OWNER_SEQ", "CAR_SEQ", "INSURANCEPOLICY_SEQ", "INSURANCECLAIM_SEQ")) {
+            assertEquals(50L, jdbc.queryForObject(
+                    "select increment from information_schema.sequences where sequence_name = ?", Long.class, sequence));
+        }
     }
 }
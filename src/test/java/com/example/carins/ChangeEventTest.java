@@ -0,0 +1,196 @@
+package com.example.carins;
+
+import com.example.carins.repo.OutboxRepository;
+import com.example.carins.service.ChangeEventSubscriber;
+import com.example.carins.web.dto.ChangeEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own database so the stream only holds the writes made here; a recording subscriber stands in for a consumer
+@SpringBootTest(properties = {"carins.outbox.sse.timeout=PT3S", "carins.outbox.sse.heartbeat=PT1S",
+        "spring.datasource.url=jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1"})
+@AutoConfigureMockMvc
+public class ChangeEventTest {
+
+    @TestConfiguration
+    static class RecordingSubscriberConfig {
+        @Bean
+        RecordingSubscriber recordingSubscriber() {
+            return new RecordingSubscriber();
+        }
+    }
+
+    static class RecordingSubscriber implements ChangeEventSubscriber {
+        final List<ChangeEvent> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+
+        @Override
+        public void onEvents(List<ChangeEvent> events) {
+            received.addAll(events);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RecordingSubscriber subscriber;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Test
+    void writes_areStreamedInOrderToPollersAndSubscribers() throws Exception {
+        long start = latestOffset();
+        String policy = mockMvc.perform(post("/api/policies").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"carId\":2,\"provider\":\"Allianz\",\"startDate\":\"2030-01-01\",\"endDate\":\"2030-12-31\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long policyId = objectMapper.readTree(policy).get("id").asLong();
+        mockMvc.perform(put("/api/policies/" + policyId).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"carId\":2,\"provider\":\"Groupama\",\"startDate\":\"2030-01-01\",\"endDate\":\"2030-12-31\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/cars/2/claims").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"carId\":2,\"claimDate\":\"2030-02-01\",\"description\":\"Hail\",\"amount\":250}"))
+                .andExpect(status().isCreated());
+
+        latestOffset();
+        JsonNode page = poll(start, 5);
+        assertEquals(3, page.get("events").size());
+        JsonNode events = page.get("events");
+        assertEquals(List.of("POLICY_CREATED", "POLICY_UPDATED", "CLAIM_CREATED"),
+                List.of(events.get(0).get("type").asText(), events.get(1).get("type").asText(), events.get(2).get("type").asText()));
+        assertEquals(start + 1, events.get(0).get("offset").asLong());
+        assertEquals(start + 3, page.get("nextOffset").asLong());
+        assertEquals(policyId, events.get(1).get("aggregateId").asLong());
+        assertEquals("Groupama", events.get(1).get("payload").get("provider").asText());
+        assertEquals("claim", events.get(2).get("aggregate").asText());
+        assertEquals(250, events.get(2).get("payload").get("amount").asInt());
+
+        for (int attempt = 0; attempt < 50 && subscriber.received.stream().noneMatch(e -> e.offset() == start + 3); attempt++) {
+            Thread.sleep(100);
+        }
+        List<Long> offsets = subscriber.received.stream().map(ChangeEvent::offset).filter(o -> o > start).toList();
+        assertEquals(List.of(start + 1, start + 2, start + 3), offsets);
+        assertEquals(start + 3, jdbc.queryForObject(
+                "select last_offset from outbox_subscription where name = 'recording'", Long.class));
+    }
+
+    @Test
+    void poll_waitsForTheNextRelayedEvent() throws Exception {
+        long start = latestOffset();
+        MvcResult waiting = mockMvc.perform(get("/api/events").param("after", Long.toString(start)).param("waitSeconds", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(post("/api/cars/1/claims").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"carId\":1,\"claimDate\":\"2030-03-01\",\"description\":\"Scratch\",\"amount\":90}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(asyncDispatch(waiting))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events.length()").value(1))
+                .andExpect(jsonPath("$.events[0].type").value("CLAIM_CREATED"))
+                .andExpect(jsonPath("$.nextOffset").value(start + 1));
+    }
+
+    @Test
+    void stream_sendsEventsAsServerSentEventsFromOffset() throws Exception {
+        mockMvc.perform(post("/api/cars/1/claims").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"carId\":1,\"claimDate\":\"2030-04-01\",\"description\":\"Mirror\",\"amount\":40}"))
+                .andExpect(status().isCreated());
+        long last = latestOffset();
+
+        MvcResult streaming = mockMvc.perform(get("/api/events/stream").header("Last-Event-ID", Long.toString(last - 1)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = "";
+        for (int attempt = 0; attempt < 50 && !body.contains("id:" + last); attempt++) {
+            Thread.sleep(100);
+            body = streaming.getResponse().getContentAsString();
+        }
+        assertTrue(body.contains("id:" + last + "\nevent:CLAIM_CREATED\ndata:{\"offset\":" + last), body);
+        assertTrue(!body.contains("id:" + (last - 1) + "\n"), body);
+    }
+
+    @Test
+    void pruningEverything_keepsOffsetsIncreasing() throws Exception {
+        mockMvc.perform(post("/api/cars/2/claims").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"carId\":2,\"claimDate\":\"2030-05-01\",\"description\":\"Dent\",\"amount\":70}"))
+                .andExpect(status().isCreated());
+        long last = latestOffset();
+
+        outboxRepository.deleteRelayedBefore(Instant.now().plus(Duration.ofDays(1)));
+        assertEquals(List.of(last), jdbc.queryForList("select stream_offset from outbox_event", Long.class));
+
+        mockMvc.perform(post("/api/cars/2/claims").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"carId\":2,\"claimDate\":\"2030-05-02\",\"description\":\"Dent\",\"amount\":80}"))
+                .andExpect(status().isCreated());
+        assertEquals(last + 1, latestOffset());
+        assertEquals(last + 1, poll(last, 5).get("events").get(0).get("offset").asLong());
+    }
+
+    @Test
+    void poll_withInvalidParameters_returnsBadRequest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/events").param("limit", "0").param("waitSeconds", "61"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.limit").value("must be between 1 and 1000"))
+                .andExpect(jsonPath("$.waitSeconds").value("must be between 0 and 60"));
+    }
+
+    // the relayed stream's head, waiting for writes made just before to be numbered
+    private long latestOffset() throws Exception {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            Long pending = jdbc.queryForObject("select count(*) from outbox_event where stream_offset is null", Long.class);
+            if (pending == 0) break;
+            Thread.sleep(100);
+        }
+        return jdbc.queryForObject("select coalesce(max(stream_offset), 0) from outbox_event", Long.class);
+    }
+
+    private JsonNode poll(long after, int waitSeconds) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/events").param("after", Long.toString(after))
+                        .param("waitSeconds", Integer.toString(waitSeconds)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return objectMapper.readTree(mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
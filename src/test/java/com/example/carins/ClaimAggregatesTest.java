@@ -0,0 +1,174 @@
+package com.example.carins;
+
+import com.example.carins.repo.ClaimAggregateRepository;
+import com.example.carins.service.ClaimAggregates;
+import com.example.carins.service.ClaimIngestionService;
+import com.example.carins.web.dto.InsuranceClaimDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own database: the rollups are compared against every claim in it
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:claim-aggregates;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+public class ClaimAggregatesTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ClaimAggregates aggregates;
+
+    @Autowired
+    private ClaimIngestionService ingestionService;
+
+    @Autowired
+    private ClaimAggregateRepository aggregateRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void claimsStoredByEveryPath_updateTheRollups_andRebuildAgrees() throws Exception {
+        // seeded at startup from import.sql: car 1 has one claim of 1500.00 in 2024-06
+        mockMvc.perform(get("/api/claims/stats/cars/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.claimCount").value(1))
+                .andExpect(jsonPath("$.totalAmount").value(1500.00));
+
+        mockMvc.perform(post("/api/cars/1/claims")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"carId": 1, "claimDate": "2024-06-20", "description": "Mirror", "amount": 100.00}
+                                """))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/claims/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                                {"carId": 1, "claimDate": "2024-06-21", "description": "Hail", "amount": 200.00}
+                                {"carId": 2, "claimDate": "2024-06-22", "description": "Dent", "amount": 50.00}
+                                {"carId": 999, "claimDate": "2024-06-23", "description": "Nope", "amount": 10.00}
+                                """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/claims/stats/cars/1"))
+                .andExpect(jsonPath("$.claimCount").value(3))
+                .andExpect(jsonPath("$.totalAmount").value(1800.00));
+        mockMvc.perform(get("/api/claims/stats/owners/2"))
+                .andExpect(jsonPath("$.claimCount").value(2))
+                .andExpect(jsonPath("$.totalAmount").value(350.00));
+        mockMvc.perform(get("/api/claims/stats/months/2024-06"))
+                .andExpect(jsonPath("$.key").value(202406))
+                .andExpect(jsonPath("$.claimCount").value(4))
+                .andExpect(jsonPath("$.totalAmount").value(1850.00));
+        mockMvc.perform(get("/api/claims/stats/cars/42"))
+                .andExpect(jsonPath("$.claimCount").value(0));
+
+        List<Map<String, Object>> incremental = rows();
+        mockMvc.perform(post("/api/claims/stats/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows").value(incremental.size()));
+        assertEquals(incremental, rows());
+    }
+
+    @Test
+    void rebuild_keepsClaimsStoredWhileItRuns() throws Exception {
+        // cars and months the other test does not look at
+        jdbc.update("insert into car (id, vin, make, model, year_of_manufacture, owner_id) " +
+                    "values (500, 'AGG00500', 'Dacia', 'Logan', 2020, 1), (501, 'AGG00501', 'VW', 'Golf', 2021, 1)");
+        jdbc.update("insert into insuranceclaim (id, car_id, claim_date, description, amount) " +
+                    "select x, 500, dateadd(day, mod(x, 365), date '2023-01-01'), 'Bulk', 10.00 " +
+                    "from system_range(10000000, 10049999)");
+        aggregates.rebuild();
+
+        AtomicBoolean rebuilding = new AtomicBoolean(true);
+        CompletableFuture<Void> rebuilds = CompletableFuture.runAsync(() -> {
+            try {
+                for (int i = 0; i < 3; i++) aggregates.rebuild();
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        int stored = 0;
+        while (rebuilding.get()) {
+            List<InsuranceClaimDto> chunk = List.of(
+                    new InsuranceClaimDto(500L, null, LocalDate.of(2023, 3, 1), "Hail", new BigDecimal("5.00")),
+                    new InsuranceClaimDto(501L, null, LocalDate.of(2023, 3, 2), "Dent", new BigDecimal("7.00")));
+            stored += ingestionService.ingestChunk(0, chunk).size();
+        }
+        rebuilds.join();
+        assertTrue(stored > 0);
+
+        List<Map<String, Object>> incremental = rows();
+        aggregates.rebuild();
+        assertEquals(rows(), incremental);
+    }
+
+    @Test
+    void rebuild_keepsClaimsStoredByAnotherNodeWhileItRuns() throws Exception {
+        // a second instance over the same database stands in for another node: it shares no JVM state with the bean
+        ClaimAggregates otherNode = new ClaimAggregates(jdbc, aggregateRepository, transactionTemplate, 2);
+        jdbc.update("insert into car (id, vin, make, model, year_of_manufacture, owner_id) " +
+                    "values (502, 'AGG00502', 'Skoda', 'Fabia', 2019, 1)");
+        jdbc.update("insert into insuranceclaim (id, car_id, claim_date, description, amount) " +
+                    "select x, 502, dateadd(day, mod(x, 365), date '2022-01-01'), 'Bulk', 20.00 " +
+                    "from system_range(20000000, 20049999)");
+        aggregates.rebuild();
+
+        AtomicBoolean rebuilding = new AtomicBoolean(true);
+        CompletableFuture<Void> rebuilds = CompletableFuture.runAsync(() -> {
+            try {
+                for (int i = 0; i < 3; i++) aggregates.rebuild();
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        AtomicLong nextId = new AtomicLong(30000000);
+        int stored = 0;
+        while (rebuilding.get()) {
+            stored += otherNode.inTransaction(() -> {
+                long id = nextId.getAndIncrement();
+                jdbc.update("insert into insuranceclaim (id, car_id, claim_date, description, amount) " +
+                            "values (?, 502, date '2022-04-01', 'Other node', 3.00)", id);
+                ClaimAggregates.Batch deltas = otherNode.batch();
+                deltas.add(502, 1L, LocalDate.of(2022, 4, 1), new BigDecimal("3.00"));
+                deltas.apply();
+                return 1;
+            });
+        }
+        rebuilds.join();
+        assertTrue(stored > 0);
+
+        List<Map<String, Object>> incremental = rows();
+        otherNode.rebuild();
+        assertEquals(rows(), incremental);
+    }
+
+    private List<Map<String, Object>> rows() {
+        return jdbc.queryForList("select scope, scope_key, claim_count, total_amount from claim_aggregate " +
+                                 "order by scope, scope_key");
+    }
+}
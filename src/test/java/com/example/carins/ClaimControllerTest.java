@@ -0,0 +1,55 @@
+package com.example.carins;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own database, as it counts the claims it stores
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:claim-controller;DB_CLOSE_DELAY=-1",
+        "carins.claims.bulk-chunk-size=2"
+})
+@AutoConfigureMockMvc
+public class ClaimControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void registerClaims_reportsEachRecord() throws Exception {
+        int before = jdbc.queryForObject("select count(*) from insuranceclaim", Integer.class);
+
+        String ndjson = """
+                {"carId": 1, "claimDate": "2025-09-10", "description": "Collision", "amount": 1000.00}
+                {"carId": 1, "claimDate": "2025-09-11", "description": "", "amount": -5}
+                {"carId": 999, "claimDate": "2025-09-12", "description": "Hail", "amount": 200.00}
+                {"carId": 2, "claimDate": "2025-09-13", "description": "Mirror", "amount": 80.00}
+                """;
+
+        mockMvc.perform(post("/api/claims/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].id").isNumber())
+                .andExpect(jsonPath("$[1].error").value("amount: must be greater than 0; description: must not be blank"))
+                .andExpect(jsonPath("$[2].error").value("Car with ID 999 not found"))
+                .andExpect(jsonPath("$[3].index").value(3))
+                .andExpect(jsonPath("$[3].id").isNumber());
+
+        assertEquals(before + 2, jdbc.queryForObject("select count(*) from insuranceclaim", Integer.class));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.carins;
+
+import com.example.carins.service.ClaimJournal;
+import com.example.carins.web.dto.InsuranceClaimDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own database, as its drainer stores claims in the background; a short status cache, so FAILED statuses have to
+// outlive eviction
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:claim-write-behind;DB_CLOSE_DELAY=-1",
+        "carins.claims.write-behind.enabled=true",
+        "carins.claims.write-behind.journal=target/write-behind/${random.uuid}.ndjson",
+        "carins.claims.write-behind.failed-log=target/write-behind/${random.uuid}-failed.ndjson",
+        "carins.claims.write-behind.max-attempts=2", "carins.claims.write-behind.retry-delay=PT0.05S",
+        "carins.claims.write-behind.tracked-statuses=2"})
+@AutoConfigureMockMvc
+public class ClaimWriteBehindTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void registerClaim_async_isStoredByDrainer() throws Exception {
+        String trackingId = submit(1, "Windshield");
+
+        String status = awaitStatus(trackingId, "CREATED");
+        Integer id = JsonPath.read(status, "$.claimId");
+        assertEquals(trackingId, jdbc.queryForObject(
+                "select tracking_id from insuranceclaim where id = ?", String.class, id));
+    }
+
+    @Test
+    void registerClaim_async_unknownCarFails() throws Exception {
+        String trackingId = submit(999, "Dent");
+
+        String status = awaitStatus(trackingId, "FAILED");
+        assertEquals("Car with ID 999 not found", JsonPath.read(status, "$.error"));
+    }
+
+    @Test
+    void registerClaim_withoutPreferHeader_staysSynchronous() throws Exception {
+        mockMvc.perform(post("/api/cars/1/claims")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(claimJson(1, "Scratch")))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void trackingStatus_unknownId_returns404() throws Exception {
+        mockMvc.perform(get("/api/claims/tracking/nope"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void claimTheDatabaseRefuses_isSetAsideAndDoesNotBlockTheQueue() throws Exception {
+        // passes validation, but is longer than the description column
+        String poison = submit(1, "x".repeat(300));
+        String next = submit(1, "Mirror");
+
+        String failed = awaitStatus(poison, "FAILED");
+        assertTrue(JsonPath.<String>read(failed, "$.error").startsWith("not stored: "), failed);
+        awaitStatus(next, "CREATED");
+
+        // pushes the failure out of the recent-status cache
+        for (int i = 0; i < 3; i++) awaitStatus(submit(1, "Scratch " + i), "CREATED");
+        awaitStatus(poison, "FAILED");
+    }
+
+    @Test
+    void journal_replaysOnlyUnacknowledgedClaims(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.ndjson");
+        InsuranceClaimDto claim = new InsuranceClaimDto(1L, null, LocalDate.of(2025, 9, 10), "Hail", new BigDecimal("10.00"));
+        try (ClaimJournal journal = new ClaimJournal(file, objectMapper, false)) {
+            journal.append(ClaimJournal.Entry.claim("a", claim));
+            journal.append(ClaimJournal.Entry.claim("b", claim));
+            journal.append(ClaimJournal.Entry.ack("a", 42L, null));
+        }
+        try (ClaimJournal reopened = new ClaimJournal(file, objectMapper, false)) {
+            List<ClaimJournal.Entry> pending = reopened.pending();
+            assertEquals(1, pending.size());
+            assertEquals("b", pending.get(0).trackingId());
+            assertEquals(claim, pending.get(0).claim());
+        }
+    }
+
+    private String submit(long carId, String description) throws Exception {
+        String body = mockMvc.perform(post("/api/cars/{carId}/claims", carId)
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(claimJson(carId, description)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.trackingId");
+    }
+
+    private String awaitStatus(String trackingId, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        String body;
+        do {
+            body = mockMvc.perform(get("/api/claims/tracking/{id}", trackingId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            if (expected.equals(JsonPath.read(body, "$.status"))) return body;
+            Thread.sleep(50);
+        } while (System.currentTimeMillis() < deadline);
+        throw new AssertionError("Claim " + trackingId + " still " + body);
+    }
+
+    private static String claimJson(long carId, String description) {
+        return """
+                {"carId": %d, "claimDate": "2025-09-10", "description": "%s", "amount": 150.00}
+                """.formatted(carId, description);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.carins;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// page size 1 so the fleet report crosses keyset page boundaries on the two seeded cars; own database so
+// policies added by other test classes do not change the expected gaps
+@SpringBootTest(properties = {"carins.coverage.page-size=1",
+        "spring.datasource.url=jdbc:h2:mem:coverage;DB_CLOSE_DELAY=-1"})
+@AutoConfigureMockMvc
+public class CoverageAnalyzerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void getCoverage_mergesAdjacentPoliciesAndReportsGaps() throws Exception {
+        mockMvc.perform(get("/api/cars/1/coverage").param("from", "2024-06-01").param("to", "2026-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.coverage.length()").value(1))
+                .andExpect(jsonPath("$.coverage[0].start").value("2024-06-01"))
+                .andExpect(jsonPath("$.coverage[0].end").value("2025-12-31"))
+                .andExpect(jsonPath("$.gaps.length()").value(1))
+                .andExpect(jsonPath("$.gaps[0].start").value("2026-01-01"))
+                .andExpect(jsonPath("$.gaps[0].days").value(90))
+                .andExpect(jsonPath("$.uncoveredDays").value(90));
+    }
+
+    @Test
+    void getCoverage_withInvertedRange_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/cars/1/coverage").param("from", "2025-01-01").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.to").value("must not be before from"));
+    }
+
+    @Test
+    void getCoverage_forMissingCar_returnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/cars/999/coverage").param("from", "2024-01-01").param("to", "2024-12-31"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getFleetGaps_streamsEveryGapInCarOrder() throws Exception {
+        mockMvc.perform(get("/api/coverage/gaps").param("from", "2024-06-01").param("to", "2026-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].carId").value(1))
+                .andExpect(jsonPath("$[0].start").value("2026-01-01"))
+                .andExpect(jsonPath("$[1].carId").value(2))
+                .andExpect(jsonPath("$[1].start").value("2024-06-01"))
+                .andExpect(jsonPath("$[1].end").value("2025-02-28"))
+                .andExpect(jsonPath("$[2].carId").value(2))
+                .andExpect(jsonPath("$[2].start").value("2025-10-01"))
+                .andExpect(jsonPath("$[2].end").value("2026-03-31"));
+    }
+
+    @Test
+    void getFleetGaps_withInvertedRange_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/coverage/gaps").param("from", "2025-01-01").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.to").value("must not be before from"));
+    }
+}
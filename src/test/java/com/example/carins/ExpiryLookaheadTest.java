@@ -0,0 +1,265 @@
+package com.example.carins;
+
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.service.ExpiryReminderJob;
+import com.example.carins.service.PolicyChangedEvent;
+import com.example.carins.service.PolicyExpiryWheel;
+import com.example.carins.web.dto.ExpiringPolicy;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Policies are written through the API so the expiry wheel is kept current by change events; the wheel tests build
+// their own wheel over rows inserted directly, which the application's wheel never hears of. Own database and
+// mailbox so the cars added here and the reminders sent do not leak into other test classes
+@SpringBootTest(properties = {"carins.notifications.sink=mailbox",
+        "carins.notifications.mailbox.dir=target/reminder-mailbox",
+        "carins.expiry.reminders.cron=-",
+        "spring.datasource.url=jdbc:h2:mem:expiry-lookahead;DB_CLOSE_DELAY=-1"})
+@AutoConfigureMockMvc
+public class ExpiryLookaheadTest {
+
+    private static final Path MAILBOX = Path.of("target", "reminder-mailbox");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ExpiryReminderJob reminderJob;
+
+    @Autowired
+    private InsurancePolicyRepository policyRepository;
+
+    @Test
+    void expiring_listsPoliciesEndingWithinTheWindowAndFollowsUpdates() throws Exception {
+        LocalDate today = LocalDate.now();
+        addCar(60, 1);
+        addCar(61, 2);
+        long soon = createPolicy(60, today.minusDays(300), today.plusDays(7));
+        long later = createPolicy(61, today, today.plusDays(30));
+        long beyond = createPolicy(60, today.plusDays(8), today.plusDays(400));
+
+        Map<Long, JsonNode> within30 = expiring(30);
+        assertEquals(7, within30.get(soon).get("daysLeft").asLong());
+        assertEquals(today.plusDays(7).toString(), within30.get(soon).get("endDate").asText());
+        assertEquals(30, within30.get(later).get("daysLeft").asLong());
+        assertFalse(within30.containsKey(beyond));
+        assertFalse(expiring(29).containsKey(later));
+
+        mockMvc.perform(put("/api/policies/" + soon).contentType(MediaType.APPLICATION_JSON)
+                        .content(policyJson(60, today.minusDays(300), today.plusDays(5))))
+                .andExpect(status().isOk());
+        assertEquals(5, expiring(30).get(soon).get("daysLeft").asLong());
+        assertFalse(expiring(366).containsKey(beyond)); // ends 400 days out, past the longest lookahead
+    }
+
+    @Test
+    void expiring_rejectsLookaheadOutsideTheWheel() throws Exception {
+        mockMvc.perform(get("/api/policies/expiring").param("withinDays", "367"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.withinDays").value("must be between 0 and 366"));
+        mockMvc.perform(get("/api/policies/expiring").param("withinDays", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void reminders_sendOneMessagePerOwnerAndLeadTimeOnce() throws Exception {
+        LocalDate today = LocalDate.now();
+        FileSystemUtils.deleteRecursively(MAILBOX);
+        addCar(70, 1);
+        addCar(71, 1);
+        addCar(72, 2);
+        addCar(73, 2);
+        createPolicy(70, today.minusDays(100), today.plusDays(14));
+        createPolicy(71, today.minusDays(50), today.plusDays(12));
+        long inAWeek = createPolicy(72, today.minusDays(10), today.plusDays(7));
+        long inTenDays = createPolicy(73, today.minusDays(10), today.plusDays(10));
+
+        reminderJob.remind(today);
+
+        List<String> messages = mailbox();
+        String ana = only(messages, "VIN00070");
+        assertTrue(ana.startsWith("To: Ana Pop <ana.pop@example.com>"), ana);
+        assertTrue(ana.contains("Subject: 2 of your car insurance policies expire within 14 days"), ana);
+        assertTrue(ana.contains("VIN00071"), ana);
+        String bogdan = only(messages, "VIN00072");
+        assertTrue(bogdan.contains("Subject: Your car insurance policy expires within 7 days"), bogdan);
+        assertTrue(only(messages, "VIN00073").contains("expires within 14 days"));
+        assertEquals(7, jdbc.queryForObject("select reminder_stage from insurancepolicy where id = ?", Integer.class, inAWeek));
+
+        reminderJob.remind(today);
+        assertEquals(messages.size(), mailbox().size());
+
+        // runs missed until the ten-day policy is 6 days out: it gets its 7-day reminder, nothing else is repeated
+        reminderJob.remind(today.plusDays(4));
+        List<String> later = mailbox();
+        assertEquals(messages.size() + 1, later.size());
+        assertEquals(2, later.stream().filter(m -> m.contains("VIN00073")).count());
+        assertEquals(7, jdbc.queryForObject("select reminder_stage from insurancepolicy where id = ?", Integer.class, inTenDays));
+
+        // a new end date is reminded afresh
+        mockMvc.perform(put("/api/policies/" + inAWeek).contentType(MediaType.APPLICATION_JSON)
+                        .content(policyJson(72, today.minusDays(10), today.plusDays(25))))
+                .andExpect(status().isOk());
+        reminderJob.remind(today.plusDays(4));
+        assertEquals(later.size() + 1, mailbox().size());
+    }
+
+    @Test
+    void wheel_cascadesOverflowAndReusesSlotsAsDaysPass() {
+        LocalDate today = LocalDate.now();
+        try {
+            // +5 and +517 share a slot; +517 and +700 start in the overflow, +700 beyond any lookahead from today
+            insertPolicy(901, today.plusDays(5));
+            insertPolicy(902, today.plusDays(517));
+            insertPolicy(903, today.plusDays(700));
+            PolicyExpiryWheel wheel = new PolicyExpiryWheel(jdbc, policyRepository, new SimpleMeterRegistry());
+            wheel.rebuild();
+
+            assertEquals(Map.of(901L, 5L), daysLeft(wheel.expiringWithin(today, 366)));
+            assertEquals(Map.of(901L, 5L), daysLeft(wheel.endingOn(today, 5)));
+
+            LocalDate later = today.plusDays(200);
+            assertEquals(Map.of(902L, 317L), daysLeft(wheel.expiringWithin(later, 366)));
+            assertEquals(Map.of(902L, 317L), daysLeft(wheel.endingOn(later, 317)));
+
+            // a whole turn of the wheel and more in one step
+            LocalDate muchLater = today.plusDays(690);
+            assertEquals(Map.of(903L, 10L), daysLeft(wheel.expiringWithin(muchLater, 366)));
+            assertEquals(jdbc.queryForObject("select count(*) from insurancepolicy where end_date >= ?", Long.class, muchLater),
+                    wheel.size());
+            // days before the wheel's current day are answered from the table
+            assertEquals(Map.of(901L, 0L), daysLeft(wheel.endingOn(today.plusDays(5), 0)));
+        } finally {
+            jdbc.update("delete from insurancepolicy where id between 901 and 903");
+        }
+    }
+
+    @Test
+    void wheel_keepsChangesMadeWhileARebuildReadsTheTable() throws Exception {
+        LocalDate today = LocalDate.now();
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        JdbcTemplate pausingJdbc = new JdbcTemplate(jdbc.getDataSource()) {
+            @Override
+            public void query(String sql, RowCallbackHandler handler, Object... args) {
+                super.query(sql, handler, args);
+                read.countDown();
+                try {
+                    resume.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        try {
+            insertPolicy(904, today.plusDays(20));
+            PolicyExpiryWheel wheel = new PolicyExpiryWheel(pausingJdbc, policyRepository, new SimpleMeterRegistry());
+            CompletableFuture<Void> rebuild = CompletableFuture.runAsync(wheel::rebuild);
+            assertTrue(read.await(10, TimeUnit.SECONDS));
+
+            jdbc.update("update insurancepolicy set end_date = ? where id = 904", today.plusDays(3));
+            insertPolicy(905, today.plusDays(4));
+            wheel.onPolicyChanged(new PolicyChangedEvent(904L, 1L, null));
+            wheel.onPolicyChanged(new PolicyChangedEvent(905L, 1L, null));
+            resume.countDown();
+            rebuild.get(10, TimeUnit.SECONDS);
+
+            assertEquals(Map.of(904L, 3L, 905L, 4L), daysLeft(wheel.expiringWithin(today, 30)));
+        } finally {
+            resume.countDown();
+            jdbc.update("delete from insurancepolicy where id between 904 and 905");
+        }
+    }
+
+    private void insertPolicy(long id, LocalDate end) {
+        jdbc.update("insert into insurancepolicy (id, car_id, provider, start_date, end_date, expiry_notified) " +
+                    "values (?, 1, 'Allianz', ?, ?, true)", id, end.minusYears(1), end);
+    }
+
+    // daysLeft by policy, for the policies inserted by the wheel tests
+    private static Map<Long, Long> daysLeft(List<ExpiringPolicy> policies) {
+        Map<Long, Long> byPolicy = new HashMap<>();
+        policies.stream().filter(p -> p.policyId() > 900 && p.policyId() < 1000)
+                .forEach(p -> byPolicy.put(p.policyId(), p.daysLeft()));
+        return byPolicy;
+    }
+
+    private void addCar(long id, long ownerId) {
+        jdbc.update("insert into car (id, vin, make, model, year_of_manufacture, owner_id) values (?, ?, 'Dacia', 'Logan', 2020, ?)",
+                id, String.format("VIN%05d", id), ownerId);
+    }
+
+    private long createPolicy(long carId, LocalDate start, LocalDate end) throws Exception {
+        String body = mockMvc.perform(post("/api/policies").contentType(MediaType.APPLICATION_JSON)
+                        .content(policyJson(carId, start, end)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    private String policyJson(long carId, LocalDate start, LocalDate end) {
+        return """
+                {"carId": %d, "provider": "Allianz", "startDate": "%s", "endDate": "%s"}""".formatted(carId, start, end);
+    }
+
+    private Map<Long, JsonNode> expiring(int withinDays) throws Exception {
+        String body = mockMvc.perform(get("/api/policies/expiring").param("withinDays", String.valueOf(withinDays)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Map<Long, JsonNode> byPolicy = new HashMap<>();
+        objectMapper.readTree(body).forEach(p -> byPolicy.put(p.get("policyId").asLong(), p));
+        return byPolicy;
+    }
+
+    private static String only(List<String> messages, String vin) {
+        List<String> matching = messages.stream().filter(m -> m.contains(vin)).toList();
+        assertEquals(1, matching.size(), "messages mentioning " + vin + ": " + matching);
+        return matching.get(0);
+    }
+
+    private static List<String> mailbox() throws IOException {
+        List<String> messages = new ArrayList<>();
+        try (Stream<Path> files = Files.list(MAILBOX)) {
+            for (Path file : files.toList()) messages.add(Files.readString(file));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.carins;
+
+import com.example.carins.notify.ExpiryNotification;
+import com.example.carins.notify.MailboxNotificationSink;
+import com.example.carins.notify.NotificationSink;
+import com.example.carins.service.ExpirySweepResult;
+import com.example.carins.service.PolicyExpiryLogger;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Sweeps into the mailbox sink behind a wrapper that fails the first send of every key (and every send for chosen
+// owners, or reports failure after delivering for others); own database so the flags it resets do not leak into other test classes
+@SpringBootTest(properties = {"carins.notifications.sink=mailbox",
+        "carins.notifications.mailbox.dir=target/mailbox-test",
+        "carins.notifications.max-attempts=3", "carins.notifications.retry-backoff=PT0.01S",
+        "carins.expiry.chunk-size=1", "carins.expiry.run-skew=PT0S",
+        "spring.datasource.url=jdbc:h2:mem:expiry-notifications;DB_CLOSE_DELAY=-1"})
+class ExpiryNotificationTest {
+
+    private static final LocalDate TODAY = LocalDate.parse("2026-01-01");
+
+    @TestConfiguration
+    static class FlakySinkConfig {
+
+        @Bean
+        @Primary
+        FlakySink flakySink(MailboxNotificationSink mailbox) {
+            return new FlakySink(mailbox);
+        }
+    }
+
+    static class FlakySink implements NotificationSink {
+
+        final MailboxNotificationSink mailbox;
+        final Set<String> attempted = ConcurrentHashMap.newKeySet();
+        final Set<Long> unreachableOwners = ConcurrentHashMap.newKeySet();
+        final Set<Long> lostAckOwners = ConcurrentHashMap.newKeySet();
+
+        FlakySink(MailboxNotificationSink mailbox) {
+            this.mailbox = mailbox;
+        }
+
+        @Override
+        public boolean send(ExpiryNotification notification) throws IOException {
+            if (unreachableOwners.contains(notification.ownerId()) || attempted.add(notification.idempotencyKey())) {
+                throw new IOException("mail gateway unavailable");
+            }
+            boolean fresh = mailbox.send(notification);
+            if (lostAckOwners.contains(notification.ownerId())) throw new IOException("connection reset");
+            return fresh;
+        }
+    }
+
+    @Autowired
+    private PolicyExpiryLogger expiryLogger;
+
+    @Autowired
+    private FlakySink sink;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void reset() {
+        FileSystemUtils.deleteRecursively(sink.mailbox.dir().toFile());
+        sink.attempted.clear();
+        sink.unreachableOwners.clear();
+        sink.lostAckOwners.clear();
+        // a second car of Ana Pop, so her notification spans cars
+        jdbc.update("merge into car (id, vin, make, model, year_of_manufacture, owner_id) key (id) " +
+                    "values (50, 'VIN50505', 'Renault', 'Clio', 2019, 1)");
+        jdbc.update("merge into insurancepolicy (id, car_id, provider, start_date, end_date, expiry_notified) key (id) " +
+                    "values (50, 50, 'Omniasig', DATE '2025-02-01', DATE '2025-11-30', false)");
+        jdbc.update("delete from insurancepolicy where id = 51");
+        jdbc.update("update insurancepolicy set expiry_notified = false");
+        jdbc.update("delete from notice_batch_item");
+        jdbc.update("delete from expiry_partition_lease");
+    }
+
+    @Test
+    void sweep_sendsOneBatchedNotificationPerOwner() throws Exception {
+        double retriesBefore = meterRegistry.counter("carins.notifications.retries").count();
+
+        ExpirySweepResult result = expiryLogger.sweep(TODAY);
+
+        assertEquals(4, result.policies());
+        assertEquals(2, result.notifications());
+        assertEquals(2, meterRegistry.counter("carins.notifications.retries").count() - retriesBefore);
+        List<String> messages = mailbox();
+        assertEquals(2, messages.size());
+        String ana = messages.stream().filter(m -> m.startsWith("To: Ana Pop <ana.pop@example.com>")).findFirst().orElseThrow();
+        assertTrue(ana.contains("Subject: 3 of your car insurance policies have expired"));
+        assertTrue(ana.contains("VIN12345: Allianz policy 1, ended 2024-12-31"));
+        assertTrue(ana.contains("VIN12345: Groupama policy 2, ended 2025-12-31"));
+        assertTrue(ana.contains("VIN50505: Omniasig policy 50, ended 2025-11-30"));
+        assertTrue(messages.stream().anyMatch(m -> m.startsWith("To: Bogdan Ionescu <bogdan.ionescu@example.com>")
+                && m.contains("VIN67890: Allianz policy 3, ended 2025-09-30")));
+        assertEquals(0, expiryLogger.sweep(TODAY).notifications());
+    }
+
+    @Test
+    void resentBatch_reusesItsKeyAndIsNotDeliveredTwice() throws Exception {
+        expiryLogger.sweep(TODAY);
+        double duplicatesBefore = meterRegistry.counter("carins.notifications.duplicates").count();
+        // as if the sweep had died after sending but before flagging the policies
+        jdbc.update("update insurancepolicy set expiry_notified = false");
+        jdbc.update("delete from expiry_partition_lease");
+
+        ExpirySweepResult again = expiryLogger.sweep(TODAY);
+
+        assertEquals(2, again.notifications());
+        assertEquals(2, meterRegistry.counter("carins.notifications.duplicates").count() - duplicatesBefore);
+        assertEquals(2, mailbox().size());
+    }
+
+    @Test
+    void unconfirmedBatch_isResentUnderItsKeyWhenMorePoliciesExpire() throws Exception {
+        sink.lostAckOwners.add(2L);
+        assertEquals(1, expiryLogger.sweep(TODAY).notifications());
+        List<String> sent = mailbox();
+        String bogdan = sent.stream().filter(m -> m.startsWith("To: Bogdan Ionescu")).findFirst().orElseThrow();
+
+        // another of Bogdan's policies expires before his delivered but unconfirmed notification is retried
+        jdbc.update("insert into insurancepolicy (id, car_id, provider, start_date, end_date, expiry_notified) " +
+                    "values (51, 2, 'Groupama', DATE '2025-10-01', DATE '2025-12-15', false)");
+        sink.lostAckOwners.clear();
+        jdbc.update("delete from expiry_partition_lease");
+        double duplicatesBefore = meterRegistry.counter("carins.notifications.duplicates").count();
+
+        ExpirySweepResult retried = expiryLogger.sweep(TODAY);
+
+        assertEquals(2, retried.policies());
+        assertEquals(2, retried.notifications());
+        assertEquals(1, meterRegistry.counter("carins.notifications.duplicates").count() - duplicatesBefore);
+        List<String> messages = mailbox();
+        assertEquals(sent.size() + 1, messages.size());
+        assertTrue(messages.contains(bogdan));
+        assertTrue(messages.stream().anyMatch(m -> m.startsWith("To: Bogdan Ionescu")
+                && m.contains("policy 51") && !m.contains("policy 3,")));
+        assertEquals(0, jdbc.queryForObject("select count(*) from notice_batch_item", Integer.class));
+    }
+
+    @Test
+    void failedNotification_leavesItsPoliciesForTheNextSweep() throws Exception {
+        sink.unreachableOwners.add(2L);
+
+        ExpirySweepResult result = expiryLogger.sweep(TODAY);
+
+        assertEquals(3, result.policies());
+        assertEquals(1, result.notifications());
+        assertEquals(List.of(3L), jdbc.queryForList(
+                "select id from insurancepolicy where end_date < ? and expiry_notified = false", Long.class, TODAY));
+
+        sink.unreachableOwners.clear();
+        jdbc.update("delete from expiry_partition_lease");
+        ExpirySweepResult retried = expiryLogger.sweep(TODAY);
+        assertEquals(1, retried.policies());
+        assertEquals(2, mailbox().size());
+    }
+
+    private List<String> mailbox() throws IOException {
+        try (Stream<Path> files = Files.list(sink.mailbox.dir())) {
+            return files.map(f -> {
+                try {
+                    return Files.readString(f);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).toList();
+        }
+    }
+}
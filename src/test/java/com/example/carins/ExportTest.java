@@ -0,0 +1,163 @@
+package com.example.carins;
+
+import com.example.carins.export.ColumnarReader;
+import com.example.carins.export.ExportColumn;
+import com.example.carins.repo.ExportRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own database so rows added by other test classes do not end up in the extracts
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export;DB_CLOSE_DELAY=-1",
+        "carins.export.max-concurrent=1"
+})
+@AutoConfigureMockMvc
+public class ExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoSpyBean
+    private ExportRepository exportRepository;
+
+    @Test
+    void exportPolicies_asCsv_writesHeaderAndEveryRowById() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/export/policies"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"policies.csv\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals("""
+                id,car_id,provider,start_date,end_date,expiry_notified\r
+                1,1,Allianz,2024-01-01,2024-12-31,false\r
+                2,1,Groupama,2025-01-01,2025-12-31,false\r
+                3,2,Allianz,2025-03-01,2025-09-30,false\r
+                """, new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportPolicies_filtersByProviderAndActiveRange() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/export/policies")
+                        .param("provider", "Allianz").param("from", "2025-01-01").param("to", "2025-12-31"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals("""
+                id,car_id,provider,start_date,end_date,expiry_notified\r
+                3,2,Allianz,2025-03-01,2025-09-30,false\r
+                """, new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportClaims_asColumnar_readsBackWithColumnarReader() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/export/claims").param("format", "columnar"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/vnd.carins.columnar"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(body));
+        assertEquals(List.of("id", "car_id", "claim_date", "description", "amount", "tracking_id"),
+                reader.columns().stream().map(ExportColumn::name).toList());
+        List<Object[]> rows = new ArrayList<>();
+        assertEquals(2, reader.forEachRow(rows::add));
+        assertArrayEquals(new Object[]{1L, 1L, LocalDate.of(2024, 6, 15), "Minor collision", new BigDecimal("1500.00"), null},
+                rows.get(0));
+        assertArrayEquals(new Object[]{2L, 2L, LocalDate.of(2025, 4, 10), "Windshield damage", new BigDecimal("300.00"), null},
+                rows.get(1));
+    }
+
+    @Test
+    void exportClaims_withGzipAccepted_compressesBody() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/export/claims").param("from", "2025-01-01")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("""
+                    id,car_id,claim_date,description,amount,tracking_id\r
+                    2,2,2025-04-10,Windshield damage,300.00,\r
+                    """, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void export_withUnknownFormatOrInvertedRange_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/export/policies").param("format", "parquet")
+                        .param("from", "2025-01-01").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.format").value("must be csv or columnar"))
+                .andExpect(jsonPath("$.to").value("must not be before from"));
+    }
+
+    @Test
+    void exportClaims_withGzipRefused_sendsIdentityBody() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/export/claims").param("from", "2025-01-01")
+                        .header("Accept-Encoding", "gzip;q=0, *"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals("""
+                id,car_id,claim_date,description,amount,tracking_id\r
+                2,2,2025-04-10,Windshield damage,300.00,\r
+                """, new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void export_whileMaxConcurrentExportsRun_returnsServiceUnavailable() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(exportRepository).exportClaims(any(), any(), any());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> running = executor.submit(() -> mockMvc.perform(get("/api/export/claims")).andExpect(status().isOk()));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            mockMvc.perform(get("/api/export/policies"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "5"))
+                    .andExpect(jsonPath("$.error").value("Too many exports running, retry later"));
+
+            release.countDown();
+            running.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        mockMvc.perform(get("/api/export/policies")).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.carins;
+
+import com.example.carins.repo.CarRepository;
+import com.example.carins.service.FleetImportService;
+import com.example.carins.service.PolicyOverlapIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// chunks of two rows so owners and VINs are resolved across chunk boundaries, no retention so evictFinished drops
+// every finished job; own database so imported cars and policies do not leak into other test classes
+@SpringBootTest(properties = {"carins.import.chunk-size=2", "carins.import.validation-threads=2",
+        "carins.import.dir=target/fleet-imports", "carins.import.max-upload-size=2KB",
+        "carins.import.retention=PT0S", "carins.import.cleanup-interval=PT1H",
+        "spring.datasource.url=jdbc:h2:mem:fleet-import;DB_CLOSE_DELAY=-1"})
+@AutoConfigureMockMvc
+public class FleetImportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private PolicyOverlapIndex overlapIndex;
+
+    @Autowired
+    private FleetImportService importService;
+
+    @Test
+    void import_storesValidRowsAndListsRejectsWithReasons() throws Exception {
+        String csv = """
+                vin,make,model,year_of_manufacture,owner_name,owner_email,provider,start_date,end_date
+                IMP00001,Skoda,Octavia,2020,Carla Dinu,carla@example.com,Allianz,2025-01-01,2025-12-31
+                IMP00001,Skoda,Octavia,2020,Carla Dinu,carla@example.com,Omniasig,2025-06-01,2026-05-31
+                IMP00002,"Mercedes, Benz",C200,2022,Carla Dinu,carla@example.com,,,
+                VIN12345,Dacia,Logan,2018,Ana Pop,ana.pop@example.com,Generali,2026-01-01,2026-12-31
+                VIN12345,Dacia,Logan,2018,Carla Dinu,carla@example.com,Generali,2027-01-01,2027-12-31
+                VIN67890,VW,Golf,2021,Bogdan Ionescu,bogdan.ionescu@example.com,Generali,2025-05-01,2026-04-30
+                IMP00003,Ford,Focus,1700,Dan,not-an-email,Allianz,2025-13-01,
+                IMP00004,Ford,Focus,2019,Dan Marin,dan@example.com
+                """;
+        String location = mockMvc.perform(post("/api/imports").contentType("text/csv").content(csv))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").exists())
+                .andReturn().getResponse().getHeader("Location");
+
+        JsonNode progress = awaitFinished(location);
+        assertEquals("COMPLETED", progress.get("status").asText());
+        assertEquals(8, progress.get("rowsRead").asLong());
+        assertEquals(3, progress.get("rowsImported").asLong());
+        assertEquals(5, progress.get("rowsRejected").asLong());
+        assertEquals(1, progress.get("ownersCreated").asLong());
+        assertEquals(2, progress.get("carsCreated").asLong());
+        assertEquals(2, progress.get("policiesCreated").asLong());
+        assertEquals("Carla Dinu", carRepository.findWithOwnerByVinIn(List.of("IMP00002")).get(0).getOwner().getName());
+
+        String rejects = mockMvc.perform(get(location + "/rejects"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = rejects.lines().toList();
+        assertEquals(6, lines.size());
+        assertEquals("line,vin,make,model,year_of_manufacture,owner_name,owner_email,provider,start_date,end_date,error",
+                lines.get(0));
+        assertTrue(lines.get(1).startsWith("3,IMP00001,") && lines.get(1).endsWith("existing coverage for this car: line 2"),
+                lines.get(1));
+        assertTrue(lines.get(2).startsWith("6,VIN12345,") && lines.get(2).endsWith("vin: VIN12345 is registered to another owner"),
+                lines.get(2));
+        assertTrue(lines.get(3).startsWith("7,VIN67890,") && lines.get(3).endsWith("existing coverage for this car: policy 3"),
+                lines.get(3));
+        assertTrue(lines.get(4).startsWith("8,IMP00003,")
+                   && lines.get(4).contains("owner_email: must be a well-formed email address")
+                   && lines.get(4).contains("year_of_manufacture: must be a year between 1886")
+                   && lines.get(4).contains("start_date: must be a date (yyyy-MM-dd)")
+                   && lines.get(4).contains("end_date: must not be null"), lines.get(4));
+        assertEquals("9,IMP00004,Ford,Focus,2019,Dan Marin,dan@example.com,\"expected 9 fields, found 6\"", lines.get(5));
+    }
+
+    @Test
+    void import_waitsForPolicyWritesOnTheSameCar() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // a policy write on car 2 that has passed its overlap check and not committed yet
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> overlapIndex.withCarsLocked(2L, null, () -> {
+            locked.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        String csv = """
+                vin,make,model,year_of_manufacture,owner_name,owner_email,provider,start_date,end_date
+                VIN67890,VW,Golf,2021,Bogdan Ionescu,bogdan.ionescu@example.com,Generali,2028-01-01,2028-12-31
+                """;
+        String location = mockMvc.perform(post("/api/imports").contentType("text/csv").content(csv))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+
+        Thread.sleep(500);
+        mockMvc.perform(get(location)).andExpect(jsonPath("$.policiesCreated").value(0));
+        release.countDown();
+        writer.join();
+
+        JsonNode progress = awaitFinished(location);
+        assertEquals("COMPLETED", progress.get("status").asText());
+        assertEquals(1, progress.get("policiesCreated").asLong());
+    }
+
+    @Test
+    void finishedJob_isEvictedWithItsRejectFile() throws Exception {
+        String csv = """
+                vin,make,model,year_of_manufacture,owner_name,owner_email
+                IMP00009,Ford,Focus,1700,Dan Marin,dan@example.com
+                """;
+        String location = mockMvc.perform(post("/api/imports").contentType("text/csv").content(csv))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+        String id = awaitFinished(location).get("id").asText();
+        Path rejects = Path.of("target/fleet-imports", id + "-rejects.csv");
+        assertTrue(Files.exists(rejects));
+
+        importService.evictFinished();
+
+        mockMvc.perform(get(location)).andExpect(status().isNotFound());
+        mockMvc.perform(get(location + "/rejects")).andExpect(status().isNotFound());
+        assertFalse(Files.exists(rejects));
+    }
+
+    @Test
+    void import_overMaxUploadSize_returnsPayloadTooLarge() throws Exception {
+        String csv = "vin,make,model,year_of_manufacture,owner_name,owner_email\n" +
+                     "IMP00010,Ford,Focus,2019,Dan Marin,dan@example.com\n".repeat(100);
+        long uploadsBefore = uploads();
+
+        mockMvc.perform(post("/api/imports").contentType("text/csv").content(csv))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.body").value("must not exceed 2048 bytes"));
+        // no Content-Length: the limit is enforced while the body is spooled
+        mockMvc.perform(post("/api/imports").contentType("text/csv").content(csv)
+                        .with(request -> { request.removeHeader("Content-Length"); return request; }))
+                .andExpect(status().isPayloadTooLarge());
+        assertEquals(uploadsBefore, uploads());
+    }
+
+    @Test
+    void import_withMissingColumns_returnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/imports").contentType("text/csv").content("vin,make\nVIN1,Dacia\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.header").value(
+                        "Missing columns: owner_name, owner_email, model, year_of_manufacture"));
+    }
+
+    @Test
+    void getProgress_forUnknownJob_returnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/imports/missing")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/imports/missing/rejects")).andExpect(status().isNotFound());
+    }
+
+    private long uploads() throws IOException {
+        Path dir = Path.of("target/fleet-imports");
+        if (!Files.exists(dir)) return 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> !f.getFileName().toString().endsWith("-rejects.csv")).count();
+        }
+    }
+
+    private JsonNode awaitFinished(String location) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            JsonNode progress = objectMapper.readTree(mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            String status = progress.get("status").asText();
+            if (!status.equals("QUEUED") && !status.equals("RUNNING")) return progress;
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Import did not finish");
+    }
+}
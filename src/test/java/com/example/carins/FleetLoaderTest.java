@@ -0,0 +1,66 @@
+package com.example.carins;
+
+import com.example.carins.model.Car;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.seed.FleetLoadResult;
+import com.example.carins.seed.FleetLoader;
+import com.example.carins.seed.FleetSpec;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// own database: the loaded fleet must not leak into contexts other tests share
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:fleet-loader;DB_CLOSE_DELAY=-1")
+public class FleetLoaderTest {
+
+    @Autowired
+    private FleetLoader loader;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private OwnerRepository ownerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void load_writesGeneratedFleetAndKeepsSequencesAhead() {
+        FleetLoadResult result = loader.load(FleetSpec.of(500).replacingExisting());
+
+        assertEquals(250, result.owners());
+        assertEquals(500, result.cars());
+        assertEquals(result.cars(), count("select count(*) from car"));
+        assertEquals(result.cars(), count("select count(distinct vin) from car"));
+        assertEquals(result.policies(), count("select count(*) from insurancepolicy"));
+        assertEquals(result.claims(), count("select count(*) from insuranceclaim"));
+        assertTrue(result.policies() > 500, "every car has at least one policy");
+
+        // renewals leave both gaps and overlaps
+        String successor = "from insurancepolicy a join insurancepolicy b on b.car_id = a.car_id and b.id = a.id + 1 ";
+        assertTrue(count("select count(*) " + successor + "where b.start_date > a.end_date + 1") > 0);
+        assertTrue(count("select count(*) " + successor + "where b.start_date <= a.end_date") > 0);
+
+        // ids handed out after the load do not collide with loaded rows
+        Car car = carRepository.save(new Car("FLEETAFTER1", "Dacia", "Logan", 2020, ownerRepository.findById(result.firstOwnerId()).orElseThrow()));
+        assertTrue(car.getId() >= result.firstCarId() + result.cars());
+    }
+
+    @Test
+    void generator_isDeterministicForSeed() {
+        FleetLoadResult first = loader.load(FleetSpec.of(100).replacingExisting());
+        FleetLoadResult second = loader.load(FleetSpec.of(100).replacingExisting());
+        assertEquals(first.policies(), second.policies());
+        assertEquals(first.claims(), second.claims());
+    }
+
+    private long count(String sql) {
+        return jdbc.queryForObject(sql, Long.class);
+    }
+}
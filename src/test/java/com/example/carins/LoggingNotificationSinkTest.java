@@ -0,0 +1,45 @@
+package com.example.carins;
+
+import com.example.carins.notify.ExpiryNotification;
+import com.example.carins.notify.LoggingNotificationSink;
+import com.example.carins.repo.projection.PolicyNoticeRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(OutputCaptureExtension.class)
+public class LoggingNotificationSinkTest {
+
+    private static final PolicyNoticeRow POLICY = new PolicyNoticeRow(7L, 3L, "VIN7", "Allianz",
+            LocalDate.of(2030, 5, 14), 2L, "Ana Pop", "ana@example.com");
+
+    private final LoggingNotificationSink sink = new LoggingNotificationSink();
+
+    @Test
+    void reminder_isLoggedAsUpcomingEnd(CapturedOutput output) {
+        ExpiryNotification reminder = ExpiryNotification.reminder(14, List.of(POLICY));
+
+        assertTrue(sink.send(reminder));
+
+        assertTrue(output.getOut().contains("Reminder: policy 7 for car 3 expires on 2030-05-14 (owner 2, notification "
+                + reminder.idempotencyKey() + ")"), output.getOut());
+        assertFalse(output.getOut().contains("expired on"), output.getOut());
+    }
+
+    @Test
+    void expiry_isLoggedAsEnded(CapturedOutput output) {
+        ExpiryNotification expiry = ExpiryNotification.render(List.of(POLICY));
+
+        assertTrue(sink.send(expiry));
+
+        assertTrue(output.getOut().contains("Policy 7 for car 3 expired on 2030-05-14 (owner 2, notification "
+                + expiry.idempotencyKey() + ")"), output.getOut());
+    }
+}
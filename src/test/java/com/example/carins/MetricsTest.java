@@ -0,0 +1,61 @@
+package com.example.carins;
+
+import com.example.carins.service.PolicyExpiryLogger;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PolicyExpiryLogger expiryLogger;
+
+    @Test
+    void requestsRecordTimersAndStatementCounts() throws Exception {
+        mockMvc.perform(get("/api/cars/1/insurance-valid").param("date", "2025-06-01"))
+                .andExpect(status().isOk());
+
+        var statements = meterRegistry.get("carins.http.statements")
+                .tags("method", "GET", "uri", "/api/cars/{carId}/insurance-valid").summary();
+        assertEquals(1, statements.count());
+        assertTrue(statements.totalAmount() >= 1, "the validity check runs at least one query");
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket")))
+                .andExpect(content().string(containsString("carins_http_statements_bucket")));
+    }
+
+    @Test
+    void expirySweepRecordsRunMetrics() throws Exception {
+        expiryLogger.sweep(LocalDate.of(2000, 1, 1));
+
+        assertTrue(meterRegistry.get("carins.expiry.sweep").timer().count() >= 1);
+        assertEquals(0, meterRegistry.get("carins.expiry.backlog").gauge().value());
+        meterRegistry.get("carins.expiry.last.rate").gauge();
+        meterRegistry.get("carins.expiry.policies.notified").counter();
+    }
+}
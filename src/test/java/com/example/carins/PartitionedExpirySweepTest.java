@@ -0,0 +1,107 @@
+package com.example.carins;
+
+import com.example.carins.service.ExpirySweepResult;
+import com.example.carins.service.PolicyExpiryLogger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Several application contexts ("nodes") sharing one H2 file database sweep the same backlog concurrently
+class PartitionedExpirySweepTest {
+
+    private static final Path DB_DIR = Path.of("target", "h2-expiry-sweep");
+    private static final int NODES = 3;
+    private static final int CARS = 120;
+    private static final int POLICIES_PER_CAR = 5;
+    private static final int CARS_PER_OWNER = 3;
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void nodesSplitPartitionsWithoutProcessingAnyPolicyTwice() throws Exception {
+        FileSystemUtils.deleteRecursively(DB_DIR);
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(startNode(i));
+        }
+        JdbcTemplate jdbc = nodes.get(0).getBean(JdbcTemplate.class);
+        seedExpiredPolicies(jdbc);
+        LocalDate today = LocalDate.parse("2026-01-01");
+        Integer expected = jdbc.queryForObject(
+                "select count(*) from insurancepolicy where end_date < ? and expiry_notified = false", Integer.class, today);
+
+        ExecutorService pool = Executors.newFixedThreadPool(NODES);
+        List<Future<ExpirySweepResult>> runs = new ArrayList<>();
+        for (ConfigurableApplicationContext node : nodes) {
+            PolicyExpiryLogger sweeper = node.getBean(PolicyExpiryLogger.class);
+            runs.add(pool.submit(() -> sweeper.sweep(today)));
+        }
+        long processed = 0, notifications = 0;
+        int partitions = 0;
+        for (Future<ExpirySweepResult> run : runs) {
+            processed += run.get().policies();
+            notifications += run.get().notifications();
+            partitions += run.get().partitions();
+        }
+        pool.shutdown();
+
+        assertEquals((long) expected, processed);
+        // every owner with an expired policy (the seeded ones and the import.sql owners) hears once
+        assertEquals((long) jdbc.queryForObject("select count(distinct c.owner_id) from insurancepolicy p " +
+                "join car c on c.id = p.car_id where p.end_date < ?", Long.class, today), notifications);
+        assertEquals(8, partitions, "each partition is swept by exactly one node");
+        assertEquals(0, jdbc.queryForObject(
+                "select count(*) from insurancepolicy where end_date < ? and expiry_notified = false", Integer.class, today));
+    }
+
+    private ConfigurableApplicationContext startNode(int node) {
+        return new SpringApplicationBuilder(CarInsuranceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:file:./" + DB_DIR + "/carins;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.jpa.hibernate.ddl-auto=" + (node == 0 ? "create" : "none"),
+                        "--carins.node-id=node-" + node,
+                        "--carins.expiry.cron=-",
+                        "--carins.expiry.partitions=8",
+                        "--carins.expiry.workers=2",
+                        "--carins.expiry.chunk-size=25");
+    }
+
+    private void seedExpiredPolicies(JdbcTemplate jdbc) {
+        List<Object[]> owners = new ArrayList<>();
+        List<Object[]> cars = new ArrayList<>();
+        List<Object[]> policies = new ArrayList<>();
+        for (int c = 0; c < CARS; c++) {
+            long carId = 1000 + c;
+            long ownerId = 1000 + c / CARS_PER_OWNER;
+            if (c % CARS_PER_OWNER == 0) owners.add(new Object[]{ownerId, "Owner " + ownerId, "owner" + ownerId + "@example.com"});
+            cars.add(new Object[]{carId, "SWEEP" + carId, ownerId});
+            for (int p = 0; p < POLICIES_PER_CAR; p++) {
+                LocalDate start = LocalDate.parse("2020-01-01").plusYears(p);
+                policies.add(new Object[]{carId * 10 + p, carId, start, start.plusMonths(11)});
+            }
+        }
+        jdbc.batchUpdate("insert into owner (id, name, email) values (?, ?, ?)", owners);
+        jdbc.batchUpdate("insert into car (id, vin, make, model, year_of_manufacture, owner_id) " +
+                "values (?, ?, 'Dacia', 'Logan', 2020, ?)", cars);
+        jdbc.batchUpdate("insert into insurancepolicy (id, car_id, provider, start_date, end_date, expiry_notified) " +
+                "values (?, ?, 'Allianz', ?, ?, false)", policies);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.carins;
+
+import com.example.carins.service.ExpirySweepResult;
+import com.example.carins.service.PolicyExpiryLogger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// own database: the sweep flags every expired policy, which other test classes must not see
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:policy-expiry-logger;DB_CLOSE_DELAY=-1",
+        "carins.expiry.chunk-size=2",
+        "carins.expiry.partitions=1"
+})
+class PolicyExpiryLoggerTest {
+
+    @Autowired
+    PolicyExpiryLogger expiryLogger;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void sweepNotifiesEachOwnerAndFlagsExpiredPoliciesOnce() throws Exception {
+        LocalDate today = LocalDate.parse("2026-01-01");
+        jdbc.update("update insurancepolicy set expiry_notified = false");
+        Integer expired = jdbc.queryForObject(
+                "select count(*) from insurancepolicy where end_date < ?", Integer.class, today);
+        Integer owners = jdbc.queryForObject("select count(distinct c.owner_id) from insurancepolicy p " +
+                "join car c on c.id = p.car_id where p.end_date < ?", Integer.class, today);
+
+        ExpirySweepResult result = expiryLogger.sweep(today);
+
+        assertEquals(expired, (int) result.policies());
+        assertEquals(owners, (int) result.notifications());
+        // windows of two owners; owners without expired policies can leave a window with a single notification
+        assertEquals((owners + 1) / 2, result.chunks());
+        assertEquals(0, jdbc.queryForObject(
+                "select count(*) from insurancepolicy where end_date < ? and expiry_notified = false", Integer.class, today));
+        assertEquals(0, expiryLogger.sweep(today).policies());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.carins;
+
+import com.example.carins.service.CarService;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own database: it adds a policy to seeded car 2, which other classes read from the shared one
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:policy-interval-index;DB_CLOSE_DELAY=-1",
+        "carins.policy-index.enabled=true"
+})
+@AutoConfigureMockMvc
+public class PolicyIntervalIndexTest {
+
+    @Autowired
+    CarService service;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void indexedValidityMatchesSeedData() {
+        assertTrue(service.isInsuranceValid(1L, LocalDate.parse("2024-01-01")));
+        assertTrue(service.isInsuranceValid(1L, LocalDate.parse("2025-12-31")));
+        assertFalse(service.isInsuranceValid(1L, LocalDate.parse("2023-12-31")));
+        assertFalse(service.isInsuranceValid(2L, LocalDate.parse("2025-02-01")));
+        assertTrue(service.isInsuranceValid(2L, LocalDate.parse("2025-09-30")));
+    }
+
+    @Test
+    void unknownCarIsNotFound() {
+        assertThrows(EntityNotFoundException.class, () -> service.isInsuranceValid(999L, LocalDate.parse("2025-01-01")));
+    }
+
+    @Test
+    void createdPolicyInvalidatesCachedCar() throws Exception {
+        assertFalse(service.isInsuranceValid(2L, LocalDate.parse("2030-06-01")));
+
+        mockMvc.perform(post("/api/policies")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "carId": 2,
+                                    "provider": "Allianz",
+                                    "startDate": "2030-01-01",
+                                    "endDate": "2030-12-31"
+                                }
+                                """))
+                .andExpect(status().isOk());
+
+        assertTrue(service.isInsuranceValid(2L, LocalDate.parse("2030-06-01")));
+    }
+}
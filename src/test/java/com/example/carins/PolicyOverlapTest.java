@@ -0,0 +1,89 @@
+package com.example.carins;
+
+import com.example.carins.model.Car;
+import com.example.carins.model.InsurancePolicy;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own database so the overlaps stored directly below do not leak into other test classes
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:policy-overlap;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+public class PolicyOverlapTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private InsurancePolicyRepository policyRepository;
+
+    @Test
+    void createPolicy_overlappingExistingCoverage_returnsConflict() throws Exception {
+        // car 1 is covered by policy 2 for 2025
+        mockMvc.perform(post("/api/policies")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(policy(1, "2025-06-01", "2026-05-31")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.overlappingPolicyIds[0]").value(2));
+    }
+
+    @Test
+    void createPolicy_touchingButNotOverlapping_succeeds() throws Exception {
+        mockMvc.perform(post("/api/policies")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(policy(2, "2025-10-01", "2026-09-30")))
+                .andExpect(status().isOk());
+        // the new policy is visible to the next check on the same car
+        mockMvc.perform(post("/api/policies")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(policy(2, "2026-09-30", "2027-09-29")))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updatePolicy_doesNotOverlapItself() throws Exception {
+        mockMvc.perform(put("/api/policies/3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(policy(2, "2025-02-01", "2025-09-30")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getOverlaps_reportsEveryOverlappingPair() throws Exception {
+        Car car = carRepository.findById(1L).orElseThrow();
+        InsurancePolicy first = policyRepository.save(new InsurancePolicy(car, "A", LocalDate.parse("2040-01-01"), LocalDate.parse("2040-12-31")));
+        InsurancePolicy second = policyRepository.save(new InsurancePolicy(car, "B", LocalDate.parse("2040-06-01"), LocalDate.parse("2041-05-31")));
+        policyRepository.save(new InsurancePolicy(car, "C", LocalDate.parse("2041-06-01"), LocalDate.parse("2042-05-31")));
+
+        mockMvc.perform(get("/api/policies/overlaps"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.carId == 1)].policyId").value(hasItem(first.getId().intValue())))
+                .andExpect(jsonPath("$[?(@.carId == 1)].otherPolicyId").value(hasItem(second.getId().intValue())))
+                .andExpect(jsonPath("$[?(@.carId == 1)].overlapStart").value(hasItem("2040-06-01")))
+                .andExpect(jsonPath("$[?(@.carId == 1)].overlapEnd").value(hasItem("2040-12-31")))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    private static String policy(long carId, String start, String end) {
+        return """
+                {"carId": %d, "provider": "Allianz", "startDate": "%s", "endDate": "%s"}
+                """.formatted(carId, start, end);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.carins;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// a two-connection pool of its own, so holding both starves every request; the claim aggregate rebuild at
+// startup holds a connection per thread and would not fit it with the default four
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pool-exhausted;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=250",
+        "carins.claims.aggregate.rebuild-threads=1"
+})
+@AutoConfigureMockMvc
+public class PoolExhaustedTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void request_whenNoConnectionFreesUpWithinTimeout_returnsServiceUnavailable() throws Exception {
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            mockMvc.perform(get("/api/cars"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"))
+                    .andExpect(jsonPath("$.error").value("Database busy, retry later"));
+        }
+        mockMvc.perform(get("/api/cars")).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.carins;
+
+import com.example.carins.repo.CarHistoryRepository;
+import com.example.carins.repo.CarHistoryRepository.HistoryFilter;
+import com.example.carins.repo.InsuranceClaimRepository;
+import com.example.carins.repo.InsurancePolicyRepository;
+import com.example.carins.seed.FleetLoadResult;
+import com.example.carins.seed.FleetLoader;
+import com.example.carins.seed.FleetSpec;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the repository methods, picks the SQL Hibernate sent from H2's query statistics and checks its EXPLAIN plan.
+// Own database with a generated fleet: on a near-empty table the planner's choice says nothing.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:query-plan;DB_CLOSE_DELAY=-1")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QueryPlanTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 1);
+
+    @Autowired
+    private FleetLoader loader;
+
+    @Autowired
+    private InsurancePolicyRepository policyRepository;
+
+    @Autowired
+    private InsuranceClaimRepository claimRepository;
+
+    @Autowired
+    private CarHistoryRepository historyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private long carId;
+
+    @BeforeAll
+    void loadFleet() {
+        FleetLoadResult fleet = loader.load(FleetSpec.of(2000).replacingExisting());
+        carId = fleet.firstCarId() + 7;
+        jdbc.execute("analyze");
+    }
+
+    @BeforeEach
+    void resetStatistics() {
+        jdbc.execute("set query_statistics false");
+        jdbc.execute("set query_statistics true");
+    }
+
+    @Test
+    void existsActiveOnDate_usesCarDatesIndex() {
+        policyRepository.existsActiveOnDate(carId, DATE);
+        assertUsesIndex(executed("select exists", "from insurancepolicy"), "IX_POLICY_CAR_DATES", carId, DATE, DATE);
+    }
+
+    @Test
+    void findInsuranceStatus_probesCarKeyAndCarDatesIndex() {
+        policyRepository.findInsuranceStatus(carId, DATE);
+        String plan = assertUsesIndex(executed("not exists"), "IX_POLICY_CAR_DATES", carId, carId, DATE, DATE);
+        assertTrue(plan.matches("(?s).*PUBLIC\\.PRIMARY_KEY_\\w*: ID = .*"), plan);
+    }
+
+    @Test
+    void findOwnerIdsWithExpiredNotNotified_usesExpiryBacklogIndex() {
+        policyRepository.findOwnerIdsWithExpiredNotNotified(DATE, 4, 1);
+        assertUsesIndex(executed("select distinct", "expiry_notified=false"), "IX_POLICY_EXPIRY_BACKLOG", DATE, 4, 1);
+    }
+
+    // H2 keeps its own index on exactly the FK column and costs it like ix_claim_car_date when only car_id is bound,
+    // so either may serve an unbounded read of one car; it must not scan the table
+    @Test
+    void findByCarIdOrderByClaimDateAsc_readsTheCarsClaimsThroughAnIndex() {
+        claimRepository.findByCarIdOrderByClaimDateAsc(carId);
+        String plan = jdbc.queryForObject("explain " + executed("from insuranceclaim", "order by"), String.class, carId);
+        assertTrue(plan.matches("(?s).*/\\* PUBLIC\\.\\w+: CAR_ID = .*"), plan);
+    }
+
+    @Test
+    void carHistory_withDateRange_readsClaimsThroughCarDateIndex() {
+        LocalDate from = DATE.minusYears(1);
+        historyRepository.forEachEvent(new HistoryFilter(carId, from, DATE, null, null), row -> { });
+        assertUsesIndex(executed("from insuranceclaim c", "c.claim_date >="), "IX_CLAIM_CAR_DATE",
+                carId, from, DATE, carId, from, DATE);
+    }
+
+    @Test
+    void findExpiredNotNotifiedByOwnerIdIn_startsFromOwnerWindowNotBacklog() {
+        policyRepository.findExpiredNotNotifiedByOwnerIdIn(DATE, List.of(1L, 2L));
+        String plan = jdbc.queryForObject("explain " + executed("from insurancepolicy", ".id in ("), String.class, 1L, 2L, DATE);
+        assertTrue(plan.matches("(?s).*FROM \"PUBLIC\"\\.\"OWNER\".*PRIMARY_KEY_\\w*: ID IN.*"), plan);
+        assertFalse(plan.contains("IX_POLICY_EXPIRY_BACKLOG"), plan);
+    }
+
+    private String executed(String... fragments) {
+        List<String> statements = jdbc.queryForList(
+                "select sql_statement from information_schema.query_statistics", String.class);
+        List<String> matching = statements.stream()
+                .filter(sql -> List.of(fragments).stream().allMatch(sql::contains))
+                .toList();
+        assertEquals(1, matching.size(), "statements seen: " + statements);
+        return matching.get(0);
+    }
+
+    private String assertUsesIndex(String sql, String index, Object... args) {
+        String plan = jdbc.queryForObject("explain " + sql, String.class, args);
+        assertTrue(plan.contains("PUBLIC." + index), plan);
+        return plan;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.carins;
+
+import com.example.carins.config.SecondLevelCacheConfig;
+import com.example.carins.model.Car;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.OwnerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private OwnerRepository ownerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void findById_isServedFromCacheAfterFirstLoad() {
+        Statistics stats = statistics();
+        Car car = carRepository.save(new Car("CACHE00001", "Skoda", "Fabia", 2020, ownerRepository.findById(1L).orElseThrow()));
+
+        carRepository.findById(car.getId()).orElseThrow();
+        long loads = stats.getEntityStatistics(Car.class.getName()).getLoadCount();
+        long hits = stats.getDomainDataRegionStatistics(Car.class.getName()).getHitCount();
+        carRepository.findById(car.getId()).orElseThrow();
+        assertTrue(carRepository.cachedExistsById(car.getId()));
+
+        assertEquals(loads, stats.getEntityStatistics(Car.class.getName()).getLoadCount());
+        assertEquals(hits + 2, stats.getDomainDataRegionStatistics(Car.class.getName()).getHitCount());
+    }
+
+    @Test
+    void findByVin_cachedResultIsInvalidatedByWrites() {
+        Statistics stats = statistics();
+        Car car = carRepository.save(new Car("CACHE00002", "Skoda", "Octavia", 2022, ownerRepository.findById(1L).orElseThrow()));
+
+        carRepository.findByVin("CACHE00002").orElseThrow();
+        long hits = stats.getQueryRegionStatistics(SecondLevelCacheConfig.CAR_BY_VIN_REGION).getHitCount();
+        assertEquals(car.getId(), carRepository.findByVin("CACHE00002").orElseThrow().getId());
+        assertEquals(hits + 1, stats.getQueryRegionStatistics(SecondLevelCacheConfig.CAR_BY_VIN_REGION).getHitCount());
+
+        car.setVin("CACHE00003");
+        carRepository.save(car);
+
+        assertTrue(carRepository.findByVin("CACHE00002").isEmpty());
+        assertEquals("CACHE00003", carRepository.findById(car.getId()).orElseThrow().getVin());
+        assertEquals(car.getId(), carRepository.findByVin("CACHE00003").orElseThrow().getId());
+    }
+
+    @Test
+    void cacheStats_listsRegions() throws Exception {
+        carRepository.findById(1L);
+        carRepository.findByVin("VIN12345");
+        mockMvc.perform(get("/api/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.region == 'com.example.carins.model.Car')].hits").exists())
+                .andExpect(jsonPath("$[?(@.region == 'car-by-vin')]").exists());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
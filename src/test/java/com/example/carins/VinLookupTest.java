@@ -0,0 +1,100 @@
+package com.example.carins;
+
+import com.example.carins.config.StatementCounter;
+import com.example.carins.model.Car;
+import com.example.carins.repo.CarRepository;
+import com.example.carins.repo.OwnerRepository;
+import com.example.carins.service.VinFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own database: the false positive test pumps 20k VINs into this context's filter
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:vin-lookup;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+public class VinLookupTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private OwnerRepository ownerRepository;
+
+    @Autowired
+    private VinFilter vinFilter;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void getCarByVin_knownVin_returnsCar() throws Exception {
+        mockMvc.perform(get("/api/cars/by-vin/{vin}", "VIN12345"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.ownerName").value("Ana Pop"));
+    }
+
+    @Test
+    void getCarByVin_unknownVin_returns404WithoutQuery() throws Exception {
+        mockMvc.perform(get("/api/cars/by-vin/{vin}", "NOSUCHVIN0000001"))
+                .andExpect(status().isNotFound());
+        // the filter on this request's thread ran the request; nothing reached Hibernate
+        assertEquals(0, statementCounter.count());
+    }
+
+    @Test
+    void insertedCar_isAddedToFilter() throws Exception {
+        assertFalse(vinFilter.mightContain("VINLOOKUP0001"));
+        carRepository.save(new Car("VINLOOKUP0001", "Ford", "Focus", 2019, ownerRepository.findById(2L).orElseThrow()));
+        assertTrue(vinFilter.mightContain("VINLOOKUP0001"));
+
+        mockMvc.perform(get("/api/cars/by-vin/{vin}", "VINLOOKUP0001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.make").value("Ford"));
+    }
+
+    @Test
+    void rolledBackCar_isNotAddedToFilter() {
+        transactionTemplate.executeWithoutResult(status -> {
+            carRepository.save(new Car("VINLOOKUP0002", "Ford", "Fiesta", 2020, ownerRepository.findById(2L).orElseThrow()));
+            carRepository.flush();
+            status.setRollbackOnly();
+        });
+        assertFalse(vinFilter.mightContain("VINLOOKUP0002"));
+    }
+
+    @Test
+    void duplicateVin_isRejectedByUniqueIndex() {
+        assertThrows(DataIntegrityViolationException.class, () ->
+                carRepository.save(new Car("VIN67890", "VW", "Golf", 2021, ownerRepository.findById(2L).orElseThrow())));
+    }
+
+    @Test
+    void filter_hasNoFalseNegativesAndFewFalsePositives() {
+        for (int i = 0; i < 20_000; i++) vinFilter.add("FILTERTEST%08d".formatted(i));
+        for (int i = 0; i < 20_000; i++) assertTrue(vinFilter.mightContain("FILTERTEST%08d".formatted(i)));
+        int falsePositives = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (vinFilter.mightContain("NEVERADDED%08d".formatted(i))) falsePositives++;
+        }
+        assertTrue(falsePositives < 600, "false positive rate should stay near 1%, was " + falsePositives);
+    }
+}
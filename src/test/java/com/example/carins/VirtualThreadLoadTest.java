@@ -0,0 +1,126 @@
+package com.example.carins;
+
+import com.example.carins.seed.FleetLoadResult;
+import com.example.carins.seed.FleetLoader;
+import com.example.carins.seed.FleetSpec;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Same burst of concurrent clients against platform-thread and virtual-thread mode; prints throughput and
+// latency percentiles. Not part of the default build: mvn -Pload test [-Dload.clients=1000 -Dload.seconds=30]
+@Tag("load")
+public class VirtualThreadLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 400);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 15);
+    private static final int CARS = Integer.getInteger("load.cars", 10_000);
+
+    @Test
+    void compareThreadModes() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+        System.out.printf("%n%-9s %10s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (Result r : List.of(platform, virtual)) {
+            System.out.printf("%-9s %10.0f %10.2f %10.2f %10.2f %8d%n",
+                    r.mode, r.throughput(), r.percentile(0.50), r.percentile(0.99), r.percentile(1.0), r.errors);
+        }
+        assertEquals(0, platform.errors);
+        assertEquals(0, virtual.errors);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CarInsuranceApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--logging.level.root=WARN",
+                        "--carins.expiry.cron=-")) {
+            FleetLoadResult fleet = context.getBean(FleetLoader.class).load(FleetSpec.of(CARS).replacingExisting());
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/cars/";
+
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+                 HttpClient http = HttpClient.newBuilder().executor(clients).version(HttpClient.Version.HTTP_1_1).build()) {
+                // the first quarter warms up the JIT, pools and caches and is not measured
+                long warmupEnd = System.nanoTime() + SECONDS * 250_000_000L;
+                long end = System.nanoTime() + SECONDS * 1_000_000_000L;
+                List<Future<long[]>> results = new ArrayList<>(CLIENTS);
+                for (int c = 0; c < CLIENTS; c++) {
+                    results.add(clients.submit(() -> drive(http, base, fleet, warmupEnd, end)));
+                }
+                Result result = new Result(virtualThreads ? "virtual" : "platform", SECONDS * 0.75);
+                for (Future<long[]> f : results) result.add(f.get());
+                return result;
+            }
+        }
+    }
+
+    // 80% validity checks, 20% full car histories; returns latencies in nanos, negative for errors
+    private static long[] drive(HttpClient http, String base, FleetLoadResult fleet, long warmupEnd, long end) throws Exception {
+        long[] latencies = new long[1024];
+        int n = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            long carId = fleet.firstCarId() + random.nextInt((int) fleet.cars());
+            String path = random.nextInt(10) < 8
+                    ? carId + "/insurance-valid?date=2020-0" + (1 + random.nextInt(9)) + "-15"
+                    : carId + "/history";
+            long started = System.nanoTime();
+            HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(base + path)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            long elapsed = System.nanoTime() - started;
+            if (started < warmupEnd) continue;
+            if (n == latencies.length) latencies = Arrays.copyOf(latencies, n * 2);
+            latencies[n++] = response.statusCode() == 200 ? elapsed : -elapsed;
+        }
+        return Arrays.copyOf(latencies, n);
+    }
+
+    private static class Result {
+        final String mode;
+        final double seconds;
+        long[] latencies = new long[0];
+        long errors;
+
+        Result(String mode, double seconds) {
+            this.mode = mode;
+            this.seconds = seconds;
+        }
+
+        void add(long[] client) {
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + client.length);
+            for (int i = 0; i < client.length; i++) {
+                if (client[i] < 0) errors++;
+                latencies[offset + i] = Math.abs(client[i]);
+            }
+            Arrays.sort(latencies);
+        }
+
+        double throughput() {
+            return latencies.length / seconds;
+        }
+
+        double percentile(double p) {
+            if (latencies.length == 0) return 0;
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}